@@ -0,0 +1,101 @@
+import java.util.Random;
+
+/**
+ * Class that gives the positions the benchmarks are run on: one from early
+ * in a game, one from the middle and one from the endgame. Each is reached by
+ * playing random moves from the start of the game with a fixed seed, so every
+ * run of the benchmarks sees the same positions.
+ */
+public class BenchmarkPositions
+{
+    // Seed of the random moves.
+    private static final long SEED = 34120;
+
+    // Stones left in the pits when the middle and the endgame start.
+    private static final int MIDDLE_STONES = 60;
+    private static final int END_STONES = 20;
+
+    // Moves played before an early position.
+    private static final int EARLY_MOVES = 4;
+
+    private final Board board;
+    private final int toMove;
+
+    /**
+     * Constructor for the position of a phase of the game.
+     *
+     * @param phase
+     *            "early", "middle" or "end".
+     */
+    public BenchmarkPositions(String phase)
+    {
+        Random random = new Random(SEED);
+        Board found = null;
+        int player = 0;
+
+        // A random game can end before it gets to the phase; try another.
+        while (found == null)
+        {
+            Board board = Board.INITIAL;
+            player = 0;
+
+            for (int moves = 0; !board.isGameOver(); moves++)
+            {
+                if (reached(phase, board, moves))
+                {
+                    found = board;
+                    break;
+                }
+
+                int pit = randomMove(random, board.legalMoves(player));
+                int next = board.nextPlayer(player, pit);
+                board = board.move(player, pit);
+                player = next;
+            }
+        }
+
+        this.board = found;
+        this.toMove = player;
+    }
+
+    // Whether a game has got to the start of a phase.
+    private static boolean reached(String phase, Board board, int moves)
+    {
+        int stones = board.seedsInPits(0) + board.seedsInPits(1);
+
+        switch (phase)
+        {
+            case "early":
+                return moves == EARLY_MOVES;
+
+            case "middle":
+                return stones <= MIDDLE_STONES;
+
+            case "end":
+                return stones <= END_STONES;
+
+            default:
+                throw new IllegalArgumentException("Unknown phase: " + phase);
+        }
+    }
+
+    // A random pit out of a mask of legal pits.
+    private static int randomMove(Random random, int moves)
+    {
+        int choice = random.nextInt(Integer.bitCount(moves));
+        for (int i = 0; i < choice; i++)
+            moves &= moves - 1;
+
+        return Integer.numberOfTrailingZeros(moves);
+    }
+
+    public Board getBoard()
+    {
+        return board;
+    }
+
+    public int getToMove()
+    {
+        return toMove;
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.function.IntSupplier;
+
+/**
+ * Workload that creates the children of a node in a node pool, starting
+ * from an empty pool every time.
+ */
+public class ExpansionWorkload implements IntSupplier
+{
+    // Enough nodes for the root and its children.
+    private static final int POOL_NODES = 16;
+
+    private final NodePool pool = new NodePool(POOL_NODES);
+    private final Board board;
+    private final int toMove;
+
+    public ExpansionWorkload(String phase)
+    {
+        BenchmarkPositions position = new BenchmarkPositions(phase);
+        board = position.getBoard();
+        toMove = position.getToMove();
+    }
+
+    // Returns the number of children created, one expansion at a time.
+    public int getAsInt()
+    {
+        pool.reset();
+        int root = pool.addRoot(board, toMove);
+
+        int children = 0;
+        while (pool.expand(root) != NodePool.NONE)
+            children++;
+
+        return children;
+    }
+}
@@ -0,0 +1,38 @@
+import java.util.function.IntSupplier;
+
+/**
+ * Workload that generates the legal moves of a position and plays each of
+ * them, working out who moves next.
+ */
+public class MoveGenerationWorkload implements IntSupplier
+{
+    private final Board board;
+    private final int toMove;
+
+    public MoveGenerationWorkload(String phase)
+    {
+        BenchmarkPositions position = new BenchmarkPositions(phase);
+        board = position.getBoard();
+        toMove = position.getToMove();
+    }
+
+    // Returns the sum of the next players, so no work can be left out.
+    public int getAsInt()
+    {
+        int moves = board.legalMoves(toMove);
+        if (board.canSwap(toMove))
+            moves |= 1;
+
+        int sum = 0;
+        for (int pit = 0; pit <= Board.PITS; pit++)
+        {
+            if ((moves & (1 << pit)) != 0)
+            {
+                Board child = board.move(toMove, pit);
+                sum += board.nextPlayer(toMove, pit) + child.getStore(0);
+            }
+        }
+
+        return sum;
+    }
+}
@@ -0,0 +1,61 @@
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntSupplier;
+
+/**
+ * Workload that reads and interprets a message from the game engine. The
+ * messages come round and round from a fixed transcript instead of the
+ * engine, in the proportions of a real game: mostly state changes.
+ */
+public class ParseWorkload implements IntSupplier
+{
+    private static final String TRANSCRIPT = "START;South\n"
+            + "CHANGE;1;0,8,8,8,8,8,8,8,0,7,7,7,7,7,7,1;OPP\n"
+            + "CHANGE;SWAP;0,8,8,8,8,8,8,8,0,7,7,7,7,7,7,1;YOU\n"
+            + "CHANGE;4;1,9,9,9,0,9,9,9,0,8,8,8,7,7,7,1;OPP\n"
+            + "CHANGE;7;2,10,10,10,1,10,10,0,1,8,8,8,7,7,0,2;YOU\n"
+            + "CHANGE;2;0,3,0,12,4,1,0,2,37,0,2,1,3,0,1,32;OPP\n"
+            + "END\n";
+
+    public ParseWorkload()
+    {
+        Interfacing.setInput(new ReplayStream(TRANSCRIPT
+                .getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    // Returns the last move of the message read.
+    public int getAsInt()
+    {
+        return Interfacing.getAndInterpret().getLastMove();
+    }
+
+    /**
+     * Stream that replays its bytes over and over, going back to the start
+     * when it gets to the end.
+     */
+    private static class ReplayStream extends InputStream
+    {
+        private final byte[] bytes;
+        private int next;
+
+        ReplayStream(byte[] bytes)
+        {
+            this.bytes = bytes;
+        }
+
+        public int read()
+        {
+            int b = bytes[next];
+            next = (next + 1) % bytes.length;
+            return b;
+        }
+
+        public int read(byte[] buffer, int offset, int length)
+        {
+            int count = Math.min(length, bytes.length - next);
+            System.arraycopy(bytes, next, buffer, offset, count);
+            next = (next + count) % bytes.length;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+import java.util.function.IntSupplier;
+
+/**
+ * Workload that plays a game out from a position with a playout policy.
+ */
+public class PlayoutWorkload implements IntSupplier
+{
+    private final Playout playout = new Playout(new Xoroshiro128(34120));
+    private final Board board;
+    private final int toMove;
+
+    public PlayoutWorkload(String phase, String policy)
+    {
+        playout.setPolicy(PlayoutPolicy.parse(policy));
+
+        BenchmarkPositions position = new BenchmarkPositions(phase);
+        board = position.getBoard();
+        toMove = position.getToMove();
+    }
+
+    // Returns the result of the playout.
+    public int getAsInt()
+    {
+        return playout.run(board, toMove);
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.function.IntSupplier;
+
+/**
+ * Workload that runs a single-threaded search with a fixed number of
+ * simulations from a position, starting from an empty tree and the same seed
+ * every time, so every run does exactly the same work.
+ */
+public class SearchWorkload implements IntSupplier
+{
+    // Nodes a simulation can add at most: the child of one untried move.
+    private static final int NODES_PER_SIMULATION = 1;
+
+    // Seed of the playouts.
+    private static final long SEED = 34120;
+
+    private final MonteCarloTreeSearch search = new MonteCarloTreeSearch();
+    private final NodePool pool;
+    private final SearchBudget budget;
+    private final Board board;
+    private final int toMove;
+
+    public SearchWorkload(String phase, String simulations)
+    {
+        BenchmarkPositions position = new BenchmarkPositions(phase);
+        board = position.getBoard();
+        toMove = position.getToMove();
+
+        long sims = Long.parseLong(simulations);
+        budget = SearchBudget.ofSimulations(sims);
+        pool = new NodePool((int) Math.min(NodePool.defaultCapacity(), (sims
+                + 1) * NODES_PER_SIMULATION));
+    }
+
+    // Returns the move chosen.
+    public int getAsInt()
+    {
+        pool.reset();
+        int root = pool.addRoot(board, toMove);
+        search.setSeed(SEED);
+        return search.search(pool, root, budget);
+    }
+}
@@ -0,0 +1,33 @@
+import java.io.OutputStream;
+import java.util.function.IntSupplier;
+
+/**
+ * Workload that sends a move to the game engine, the engine being replaced
+ * by an output that throws the messages away.
+ */
+public class SendWorkload implements IntSupplier
+{
+    private int move;
+
+    public SendWorkload()
+    {
+        Interfacing.setOutput(new OutputStream()
+        {
+            public void write(int b)
+            {
+            }
+
+            public void write(byte[] bytes, int offset, int length)
+            {
+            }
+        });
+    }
+
+    // Sends every move in turn, SWAP included; returns the move sent.
+    public int getAsInt()
+    {
+        move = (move + 1) % (Board.PITS + 1);
+        Interfacing.InterpretAndSend(move);
+        return move;
+    }
+}
@@ -0,0 +1,34 @@
+package kalah.bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. It takes the usual JMH options, and
+ * always adds the GC profiler, so every result comes with the allocation
+ * rate (gc.alloc.rate.norm is the bytes allocated per operation).
+ *
+ * Usage: java -jar benchmarks/target/benchmarks.jar [JMH options] [regexp]
+ */
+public class BenchmarkMain
+{
+    public static void main(String[] args) throws IOException,
+            RunnerException, CommandLineOptionException
+    {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList())
+        {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        new Runner(new OptionsBuilder().parent(options)
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,54 @@
+package kalah.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of move generation: listing and playing the legal moves of a
+ * position, and creating the children of a node in the node pool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark
+{
+    @Param({ "early", "middle", "end" })
+    private String phase;
+
+    private IntSupplier moves;
+    private IntSupplier expansion;
+
+    @Setup
+    public void setUp()
+    {
+        moves = Workloads.create("MoveGenerationWorkload", phase);
+        expansion = Workloads.create("ExpansionWorkload", phase);
+    }
+
+    @Benchmark
+    public int legalMoves()
+    {
+        return moves.getAsInt();
+    }
+
+    @Benchmark
+    public int expand()
+    {
+        return expansion.getAsInt();
+    }
+}
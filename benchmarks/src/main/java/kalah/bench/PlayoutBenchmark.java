@@ -0,0 +1,49 @@
+package kalah.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the playouts of the simulation step with each playout policy,
+ * in playouts per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayoutBenchmark
+{
+    @Param({ "early", "middle", "end" })
+    private String phase;
+
+    @Param({ "random", "greedy", "softmax" })
+    private String policy;
+
+    private IntSupplier playout;
+
+    @Setup
+    public void setUp()
+    {
+        playout = Workloads.create("PlayoutWorkload", phase, policy);
+    }
+
+    @Benchmark
+    public int playout()
+    {
+        return playout.getAsInt();
+    }
+}
@@ -0,0 +1,51 @@
+package kalah.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of reading and interpreting the messages of the game engine,
+ * and of sending moves to it. The input and output of the protocol are
+ * shared by the whole process, so these are only run on one thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark
+{
+    private IntSupplier parse;
+    private IntSupplier send;
+
+    @Setup
+    public void setUp()
+    {
+        parse = Workloads.create("ParseWorkload");
+        send = Workloads.create("SendWorkload");
+    }
+
+    @Benchmark
+    public int getAndInterpret()
+    {
+        return parse.getAsInt();
+    }
+
+    @Benchmark
+    public int interpretAndSend()
+    {
+        return send.getAsInt();
+    }
+}
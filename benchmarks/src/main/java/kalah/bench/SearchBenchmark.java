@@ -0,0 +1,49 @@
+package kalah.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the time a whole single-threaded search takes for a fixed
+ * number of simulations, tree building included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+    @Param({ "early", "middle", "end" })
+    private String phase;
+
+    @Param({ "1000", "10000", "100000" })
+    private String simulations;
+
+    private IntSupplier search;
+
+    @Setup
+    public void setUp()
+    {
+        search = Workloads.create("SearchWorkload", phase, simulations);
+    }
+
+    @Benchmark
+    public int search()
+    {
+        return search.getAsInt();
+    }
+}
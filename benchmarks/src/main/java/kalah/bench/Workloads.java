@@ -0,0 +1,47 @@
+package kalah.bench;
+
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
+/**
+ * Class that creates the workloads the benchmarks measure.
+ *
+ * JMH only runs benchmarks in a named package, and the bot's classes are in
+ * the default package, which a named package can't refer to. So each
+ * workload is written as a class of the default package implementing
+ * IntSupplier, and is created here by name. The benchmark then calls it
+ * through the interface, a call the JIT inlines, so the measurements are
+ * the same as for direct calls.
+ */
+final class Workloads
+{
+    private Workloads()
+    {
+    }
+
+    /**
+     * Method that creates a workload.
+     *
+     * @param name
+     *            The name of the workload's class.
+     * @param args
+     *            The arguments of its constructor.
+     *
+     * @return workload The workload.
+     */
+    static IntSupplier create(String name, String... args)
+    {
+        Class<?>[] types = new Class<?>[args.length];
+        Arrays.fill(types, String.class);
+
+        try
+        {
+            return (IntSupplier) Class.forName(name).getConstructor(types)
+                    .newInstance((Object[]) args);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Can't create " + name, e);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/**
+ * Class that searches a position with iterative deepening alpha-beta, as an
+ * alternative to Monte Carlo Tree Search. Kalah has at most seven moves a
+ * turn, so a full-width search gets deep quickly.
+ *
+ * The search is a negamax: scores are from the view of the player to move,
+ * and are negated when the turn passes to the other player but not after an
+ * extra turn. A position at the depth limit is scored by the difference of
+ * the stores. A position whose winner is known (the end of the game, a store
+ * holding a majority, or a position in the endgame table) is scored by the
+ * final difference plus or minus WIN, so that it outweighs any evaluation.
+ *
+ * Each iteration searches one move deeper than the last, trying first the
+ * best move found for the position before (kept in a transposition table),
+ * then the moves earning an extra turn (nearest the store first, as they
+ * leave the others in place), then the rest by the stones they gain. The
+ * table lives as long as the search, so it carries over from move to move.
+ * The search stops when the budget is used up, counting the positions
+ * searched against the simulation limit, or when the result is known for
+ * certain; the move of the last complete iteration is played.
+ */
+public class AlphaBetaSearch implements SearchEngine
+{
+    // Heap used per entry of the transposition table.
+    public static final int BYTES_PER_ENTRY = 16;
+
+    // Deepest iteration.
+    private static final int MAX_DEPTH = 100;
+
+    // Added to the score of a known result.
+    private static final int WIN = 1000;
+
+    // More than any score.
+    private static final int INFINITY = 10000;
+
+    // Order scores of the table's move and of the moves earning an extra
+    // turn; the others are scored by the stones they gain.
+    private static final int TABLE_MOVE_ORDER = 200;
+    private static final int EXTRA_TURN_ORDER = 100;
+
+    // Kinds of score in the table: exact, or only a bound because a move
+    // was cut off or no move raised alpha.
+    private static final int EXACT = 0;
+    private static final int LOWER = 1;
+    private static final int UPPER = 2;
+
+    // The transposition table: a key and a packed entry (see pack()) in
+    // each slot.
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+
+    // The moves of each ply with their positions and order scores, reused
+    // from search to search.
+    private final int[][] moves = new int[MAX_DEPTH + 1][Board.PITS + 1];
+    private final Board[][] children = new Board[MAX_DEPTH + 1][Board.PITS
+            + 1];
+    private final int[][] orders = new int[MAX_DEPTH + 1][Board.PITS + 1];
+
+    // Exact values of endgame positions, or null if there are none.
+    private EndgameTable endgameTable;
+
+    // The budget of the current search.
+    private SearchBudget budget;
+    private long deadline;
+    private boolean aborted;
+
+    // The best move at the root in the current iteration.
+    private int rootMove;
+
+    // Positions searched and the depth of the last complete iteration of
+    // the last search.
+    private long numPositions;
+    private int completedDepth;
+
+    /**
+     * Constructor for an alpha-beta search.
+     *
+     * @param entries
+     *            The most entries the transposition table may have; rounded
+     *            down to a power of two.
+     */
+    public AlphaBetaSearch(int entries)
+    {
+        if (entries < 1)
+            throw new IllegalArgumentException("entries must be at least 1");
+
+        int size = Integer.highestOneBit(entries);
+        keys = new long[size];
+        this.entries = new long[size];
+        mask = size - 1;
+    }
+
+    public void setEndgameTable(EndgameTable endgameTable)
+    {
+        this.endgameTable = endgameTable;
+    }
+
+    // The search makes no random choices.
+    public void setSeed(long seed)
+    {
+    }
+
+    // Positions searched by the last search.
+    public long getNumSimulations()
+    {
+        return numPositions;
+    }
+
+    // Depth of the last complete iteration of the last search.
+    public int getMaxDepth()
+    {
+        return completedDepth;
+    }
+
+    public double getMeanDepth()
+    {
+        return completedDepth;
+    }
+
+    /**
+     * Method that searches the position of a node one move deeper at a time
+     * until the budget is used up, and returns the best move of the last
+     * complete iteration. The tree is only read for the position.
+     *
+     * @param pool
+     *            The pool holding the game tree.
+     * @param root
+     *            The node of the position to search.
+     * @param budget
+     *            The budget; the positions searched count as simulations.
+     *
+     * @return move The move to make (1-7, or 0 for SWAP).
+     */
+    public int search(NodePool pool, int root, SearchBudget budget)
+    {
+        Board board = pool.getBoard(root);
+        int toMove = pool.getPlayerToMove(root);
+        long key = Zobrist.hash(board, toMove, false);
+
+        this.budget = budget;
+        deadline = budget.deadline(System.nanoTime());
+        aborted = false;
+        numPositions = 0;
+        completedDepth = 0;
+
+        // Only played if not even the first iteration gets anywhere.
+        int best = Integer.numberOfTrailingZeros(board.legalMoves(toMove));
+
+        for (int depth = 1; depth <= MAX_DEPTH; depth++)
+        {
+            rootMove = -1;
+            int score = alphaBeta(board, toMove, key, depth, -INFINITY,
+                    INFINITY, 0);
+
+            if (aborted)
+            {
+                // Part of the first iteration beats nothing at all.
+                if (completedDepth == 0 && rootMove != -1)
+                    best = rootMove;
+                break;
+            }
+
+            best = rootMove;
+            completedDepth = depth;
+
+            // The winner is known, and no deeper search can change that.
+            if (Math.abs(score) >= WIN)
+                break;
+        }
+
+        return best;
+    }
+
+    /**
+     * Method that works out the score of a position to a depth with
+     * alpha-beta pruning.
+     *
+     * @param board
+     *            The position.
+     * @param toMove
+     *            The player to move.
+     * @param key
+     *            The Zobrist key of the position.
+     * @param depth
+     *            The number of moves left to search.
+     * @param alpha
+     *            The score the player to move is already sure of.
+     * @param beta
+     *            The score the opponent is already sure of holding the
+     *            player to.
+     * @param ply
+     *            The number of moves from the root.
+     *
+     * @return score The score for the player to move: exact if between alpha
+     *         and beta, else a bound on the side of the window it fell.
+     */
+    private int alphaBeta(Board board, int toMove, long key, int depth,
+            int alpha, int beta, int ply)
+    {
+        numPositions++;
+        if (budget.isExhausted(deadline, numPositions, 0))
+        {
+            aborted = true;
+            return 0;
+        }
+
+        if (board.isGameOver())
+            return known(board.finalScore(toMove)
+                    - board.finalScore(toMove ^ 1));
+
+        // Below the root, which always needs a move to play.
+        if (ply > 0)
+        {
+            if (board.isDecided())
+                return known(board.getStore(toMove)
+                        - board.getStore(toMove ^ 1));
+
+            if (endgameTable != null && endgameTable.covers(board))
+            {
+                int difference = endgameTable.finalDifference(board, toMove);
+                return known(toMove == 0 ? difference : -difference);
+            }
+        }
+
+        if (depth == 0 || ply == MAX_DEPTH)
+            return board.getStore(toMove) - board.getStore(toMove ^ 1);
+
+        // A score from an earlier search at least as deep may settle it.
+        int slot = (int) key & mask;
+        int tableMove = -1;
+        if (keys[slot] == key)
+        {
+            long entry = entries[slot];
+            tableMove = entryMove(entry);
+
+            int score = entryScore(entry);
+            int bound = entryBound(entry);
+            if (ply > 0 && entryDepth(entry) >= depth
+                    && (bound == EXACT || (bound == LOWER && score >= beta)
+                    || (bound == UPPER && score <= alpha)))
+                return score;
+        }
+
+        int count = orderMoves(board, toMove, tableMove, ply);
+        int[] plyMoves = moves[ply];
+        Board[] plyChildren = children[ply];
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = plyMoves[0];
+        long turn = Zobrist.turn(toMove, false);
+
+        for (int i = 0; i < count; i++)
+        {
+            int pit = plyMoves[i];
+            Board child = plyChildren[i];
+            int next = board.nextPlayer(toMove, pit);
+            long childKey = Zobrist.update(key, board, turn, child, Zobrist
+                    .turn(next, false));
+
+            // The same player moves again after an extra turn.
+            int score = (next == toMove) ? alphaBeta(child, toMove, childKey,
+                    depth - 1, alpha, beta, ply + 1) : -alphaBeta(child, next,
+                    childKey, depth - 1, -beta, -alpha, ply + 1);
+
+            if (aborted)
+                return 0;
+
+            if (score > best)
+            {
+                best = score;
+                bestMove = pit;
+                if (ply == 0)
+                    rootMove = pit;
+            }
+
+            if (best > alpha)
+                alpha = best;
+
+            if (alpha >= beta)
+                break;
+        }
+
+        int bound = (best <= originalAlpha) ? UPPER : (best >= beta) ? LOWER
+                : EXACT;
+        if (keys[slot] != key || depth >= entryDepth(entries[slot]))
+        {
+            keys[slot] = key;
+            entries[slot] = pack(best, depth, bound, bestMove);
+        }
+
+        return best;
+    }
+
+    /**
+     * Method that makes every legal move of a position and sorts the moves
+     * into the order they are searched in.
+     *
+     * @param board
+     *            The position.
+     * @param toMove
+     *            The player to move.
+     * @param tableMove
+     *            The best move found for the position before, or -1.
+     * @param ply
+     *            The number of moves from the root, whose arrays are filled.
+     *
+     * @return count The number of moves.
+     */
+    private int orderMoves(Board board, int toMove, int tableMove, int ply)
+    {
+        int[] plyMoves = moves[ply];
+        Board[] plyChildren = children[ply];
+        int[] plyOrders = orders[ply];
+
+        int legal = board.legalMoves(toMove);
+        if (board.canSwap(toMove))
+            legal |= 1;
+
+        int count = 0;
+        for (; legal != 0; legal &= legal - 1)
+        {
+            int pit = Integer.numberOfTrailingZeros(legal);
+            Board child = board.move(toMove, pit);
+
+            int order;
+            if (pit == tableMove)
+                order = TABLE_MOVE_ORDER;
+            else if (pit == 0)
+                order = 0;
+            else if (board.nextPlayer(toMove, pit) == toMove)
+                order = EXTRA_TURN_ORDER + pit;
+            else
+                order = child.getStore(toMove) - board.getStore(toMove);
+
+            // Insert the move after those ordered before it.
+            int i = count++;
+            for (; i > 0 && plyOrders[i - 1] < order; i--)
+            {
+                plyMoves[i] = plyMoves[i - 1];
+                plyChildren[i] = plyChildren[i - 1];
+                plyOrders[i] = plyOrders[i - 1];
+            }
+
+            plyMoves[i] = pit;
+            plyChildren[i] = child;
+            plyOrders[i] = order;
+        }
+
+        return count;
+    }
+
+    // The score of a position whose winner is known, from the final (or a
+    // decisive) difference for the player to move.
+    private static int known(int difference)
+    {
+        if (difference > 0)
+            return WIN + difference;
+
+        if (difference < 0)
+            return -WIN + difference;
+
+        return 0;
+    }
+
+    // Packs a score (16 bits), depth (8 bits), kind of score (2 bits) and
+    // best move (4 bits) into a table entry.
+    private static long pack(int score, int depth, int bound, int move)
+    {
+        return (score & 0xFFFFL) | ((long) depth << 16) | ((long) bound << 24)
+                | ((long) move << 26);
+    }
+
+    private static int entryScore(long entry)
+    {
+        return (short) entry;
+    }
+
+    private static int entryDepth(long entry)
+    {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    private static int entryBound(long entry)
+    {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    private static int entryMove(long entry)
+    {
+        return (int) (entry >>> 26) & 0xF;
+    }
+}
@@ -0,0 +1,339 @@
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tool that plays games between two bot configurations, A and B, in the same
+ * process: the bots are KalahBots, but their moves are passed straight from
+ * one to the other instead of through the game engine. Games are played on
+ * several threads at once, A and B taking turns to move first.
+ *
+ * Every bot setting can be given to either side as a system property named
+ * like the bot's own, with arena.a. or arena.b. in place of kalah. (for
+ * example -Darena.a.sims=20000 -Darena.b.exploration=1.0, or
+ * -Darena.a.engine=alphabeta to play the alpha-beta search against MCTS,
+ * best compared with the same time per move). Unlike the bot,
+ * each side searches on a single thread unless told otherwise, plays 10000
+ * simulations a move if given no budget, and never ponders. A side given a
+ * seed (arena.a.seed) has its playouts restarted from the seed plus the
+ * number of the game before every game, so any game can be played again
+ * however the games are shared out between the threads.
+ *
+ * After every game a sequential probability ratio test weighs the hypothesis
+ * that A is elo1 Elo stronger than B against the hypothesis that it is elo0
+ * stronger, and the match stops as soon as either is accepted (with 5% error
+ * rates), or after the given number of games. The win rate and the Elo
+ * difference are reported as it goes.
+ *
+ * Usage: java Arena [games] [threads] [elo0] [elo1]
+ */
+public class Arena
+{
+    // Simulations per move for a side with no budget of its own.
+    public static final long DEFAULT_SIMULATIONS = 10000;
+
+    // Probability of accepting either hypothesis when it is false.
+    private static final double ALPHA = 0.05;
+    private static final double BETA = 0.05;
+
+    // Games between progress reports.
+    private static final int REPORT_INTERVAL = 100;
+
+    // Results of the games so far, for A.
+    private int wins;
+    private int draws;
+    private int losses;
+
+    // Bounds of the test.
+    private final double elo0;
+    private final double elo1;
+
+    public Arena(double elo0, double elo1)
+    {
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+    }
+
+    public static void main(String[] args)
+    {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime
+                .getRuntime().availableProcessors();
+        double elo0 = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        double elo1 = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+
+        // Two bots per thread share the memory the bot would have.
+        int poolNodes = NodePool.defaultCapacity() / (2 * threads);
+        BotConfig a = config("arena.a.", poolNodes);
+        BotConfig b = config("arena.b.", poolNodes);
+
+        Arena arena = new Arena(elo0, elo1);
+        arena.play(a, b, games, threads);
+        if (arena.getGames() % REPORT_INTERVAL != 0)
+            arena.report();
+        System.out.println(arena.verdict());
+    }
+
+    /**
+     * Method that reads the configuration of one side from the system
+     * properties.
+     *
+     * @param prefix
+     *            The prefix of the side's properties.
+     * @param poolNodes
+     *            The size of the side's node pool, unless the properties
+     *            give one.
+     *
+     * @return config The configuration.
+     */
+    private static BotConfig config(String prefix, int poolNodes)
+    {
+        Properties properties = System.getProperties();
+        BotConfig config = BotConfig.fromProperties(properties, prefix);
+
+        if (properties.getProperty(prefix + "threads") == null)
+        {
+            config.setThreads(1);
+            if (properties.getProperty(prefix + "leafbatch") == null)
+                config.setLeafBatch(
+                        LeafParallelSearch.DEFAULT_PLAYOUTS_PER_THREAD);
+        }
+
+        if (!config.hasFixedBudget()
+                && properties.getProperty(prefix + "clock") == null)
+            config.setSimulations(DEFAULT_SIMULATIONS);
+
+        if (properties.getProperty(prefix + "poolnodes") == null)
+            config.setPoolNodes(poolNodes);
+
+        config.setPondering(false);
+        return config;
+    }
+
+    /**
+     * Method that plays a match, stopping early once the test has accepted a
+     * hypothesis.
+     *
+     * @param a
+     *            The configuration of A.
+     * @param b
+     *            The configuration of B.
+     * @param games
+     *            The most games to play.
+     * @param threads
+     *            The number of games to play at once.
+     */
+    public void play(final BotConfig a, final BotConfig b, final int games,
+            int threads)
+    {
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicBoolean stop = new AtomicBoolean();
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++)
+        {
+            workers[t] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    KalahBot botA = new KalahBot(0, a);
+                    KalahBot botB = new KalahBot(0, b);
+
+                    int game;
+                    while (!stop.get() && (game = next.getAndIncrement())
+                            < games)
+                    {
+                        if (a.getSeed() != null)
+                            botA.setSeed(a.getSeed() + game);
+                        if (b.getSeed() != null)
+                            botB.setSeed(b.getSeed() + game);
+
+                        // A moves first in the even games.
+                        boolean aFirst = game % 2 == 0;
+                        int difference = aFirst ? playGame(botA, botB)
+                                : -playGame(botB, botA);
+
+                        if (addResult(difference))
+                            stop.set(true);
+                    }
+                }
+            }, "arena-" + t);
+            workers[t].start();
+        }
+
+        for (int t = 0; t < threads; t++)
+            Utilities.join(workers[t]);
+    }
+
+    /**
+     * Method that plays one game between two bots.
+     *
+     * @param south
+     *            The bot that moves first.
+     * @param north
+     *            The bot that moves second.
+     *
+     * @return difference South's final score minus North's.
+     */
+    static int playGame(KalahBot south, KalahBot north)
+    {
+        KalahBot[] bots = { south, north };
+        int[] nodes = { south.startGame(), north.startGame() };
+
+        // Players keep their numbers after a SWAP; the board is mirrored
+        // instead, as in the bots' trees.
+        Board board = Board.INITIAL;
+        int player = 0;
+
+        while (!board.isGameOver())
+        {
+            int move = bots[player].chooseMove(nodes[player]);
+
+            Board next = board.move(player, move);
+            int toMove = board.nextPlayer(player, move);
+            for (int i = 0; i < 2; i++)
+                nodes[i] = bots[i].followMove(nodes[i], move, next, toMove);
+
+            board = next;
+            player = toMove;
+        }
+
+        return board.finalScore(0) - board.finalScore(1);
+    }
+
+    /**
+     * Method that records the result of a game, reporting on the match every
+     * so often.
+     *
+     * @param difference
+     *            A's final score minus B's.
+     *
+     * @return done Whether the test has accepted a hypothesis.
+     */
+    synchronized boolean addResult(int difference)
+    {
+        if (difference > 0)
+            wins++;
+        else if (difference == 0)
+            draws++;
+        else
+            losses++;
+
+        if (getGames() % REPORT_INTERVAL == 0)
+            report();
+
+        double llr = logLikelihoodRatio();
+        return llr <= lowerBound() || llr >= upperBound();
+    }
+
+    // Prints the results so far.
+    synchronized void report()
+    {
+        System.out.printf("Games: %d  A: +%d =%d -%d  score %.1f%%  "
+                + "Elo %+.1f +/- %.1f  LLR %.2f [%.2f, %.2f]%n", getGames(),
+                wins, draws, losses, 100 * getScore(), getElo(),
+                getEloError(), logLikelihoodRatio(), lowerBound(),
+                upperBound());
+    }
+
+    // The outcome of the test.
+    synchronized String verdict()
+    {
+        double llr = logLikelihoodRatio();
+        if (llr >= upperBound())
+            return "H1 accepted: A is at least " + elo1 + " Elo stronger";
+
+        if (llr <= lowerBound())
+            return "H0 accepted: A is at most " + elo0 + " Elo stronger";
+
+        return "No verdict after " + getGames() + " games";
+    }
+
+    public synchronized int getGames()
+    {
+        return wins + draws + losses;
+    }
+
+    // A's average score per game, a draw being half a win.
+    public synchronized double getScore()
+    {
+        return getGames() == 0 ? 0.5 : (wins + 0.5 * draws) / getGames();
+    }
+
+    // A's Elo advantage, as measured by its score.
+    public synchronized double getElo()
+    {
+        return elo(getScore());
+    }
+
+    // Half the width of the 95% confidence interval of the Elo advantage.
+    public synchronized double getEloError()
+    {
+        int games = getGames();
+        if (games == 0)
+            return 0;
+
+        double margin = 1.96 * Math.sqrt(variance() / games);
+        double score = getScore();
+        return (elo(score + margin) - elo(score - margin)) / 2;
+    }
+
+    /**
+     * Method that works out the log likelihood ratio of the two hypotheses,
+     * approximating the distribution of the score per game by a normal
+     * distribution with the variance seen so far (the generalised SPRT).
+     *
+     * @return llr The log likelihood ratio of elo1 to elo0.
+     */
+    synchronized double logLikelihoodRatio()
+    {
+        double variance = variance();
+        if (variance == 0)
+            return 0;
+
+        double score0 = score(elo0);
+        double score1 = score(elo1);
+        return getGames() * (score1 - score0)
+                * (2 * getScore() - score0 - score1) / (2 * variance);
+    }
+
+    // Variance of A's score per game.
+    private double variance()
+    {
+        int games = getGames();
+        if (games == 0)
+            return 0;
+
+        double score = getScore();
+        return (wins * square(1 - score) + draws * square(0.5 - score)
+                + losses * square(score)) / games;
+    }
+
+    private static double lowerBound()
+    {
+        return Math.log(BETA / (1 - ALPHA));
+    }
+
+    private static double upperBound()
+    {
+        return Math.log((1 - BETA) / ALPHA);
+    }
+
+    // Elo difference of an expected score.
+    private static double elo(double score)
+    {
+        double clamped = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+
+    // Expected score of an Elo difference.
+    private static double score(double elo)
+    {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private static double square(double x)
+    {
+        return x * x;
+    }
+}
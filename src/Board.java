@@ -0,0 +1,436 @@
+/**
+ * Class that represents an immutable Kalah position. The 16 counts of the
+ * board (a store and seven pits for each player) are packed into two longs,
+ * one byte per count, so that a position can be copied, compared and hashed
+ * without touching an array. Byte 0 of each long is the player's store and
+ * bytes 1 to 7 are the player's pits, matching the layout of the int[2][8]
+ * states used elsewhere (index 0 = South, index 1 = North).
+ *
+ * Sowing is done with precomputed tables: a move from pit p with n stones
+ * drops n / 15 stones in every slot of the 15 slot cycle (the opponent's store
+ * is skipped) and one more stone in each of the first n % 15 slots. Both are
+ * plain additions on the packed longs, so no counts ever need to be unpacked
+ * and nothing is allocated apart from the resulting position.
+ */
+public final class Board
+{
+    // Number of pits per player (not counting the store).
+    public static final int PITS = 7;
+
+    // Number of stones each pit starts the game with.
+    public static final int STONES = 7;
+
+    // Total number of stones in the game.
+    public static final int TOTAL_STONES = 2 * PITS * STONES;
+
+    // Stones a store must hold for its player to have won, whatever happens
+    // to the rest.
+    public static final int MAJORITY = TOTAL_STONES / 2 + 1;
+
+    // Number of slots a sowing cycles through (own pits, own store and the
+    // opponent's pits).
+    public static final int CYCLE = 2 * PITS + 1;
+
+    // Value returned by landing() when the last stone ends on the opponent's
+    // side of the board.
+    public static final int OPPONENT_SIDE = -1;
+
+    // A 1 in every lane that receives a stone once per full cycle, for the
+    // player sowing (store and pits) and for the opponent (pits only).
+    static final long OWN_LAP = 0x0101010101010101L;
+    static final long OPP_LAP = 0x0101010101010100L;
+
+    // The low seven bits of every lane.
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    // Masks to add for the stones left over after the full cycles, indexed
+    // by [pit][stones % CYCLE].
+    static final long[][] OWN_ADD = new long[PITS + 1][CYCLE];
+    static final long[][] OPP_ADD = new long[PITS + 1][CYCLE];
+
+    // Where the last stone lands, indexed by [pit][stones % CYCLE]. Values
+    // are 0 for the player's store, 1 to 7 for one of the player's pits, or
+    // OPPONENT_SIDE.
+    static final int[][] LANDING = new int[PITS + 1][CYCLE];
+
+    static
+    {
+        for (int pit = 1; pit <= PITS; pit++)
+        {
+            long own = 0;
+            long opp = 0;
+
+            // A multiple of a full cycle ends where it started.
+            LANDING[pit][0] = pit;
+
+            for (int r = 1; r < CYCLE; r++)
+            {
+                // Slot r after the pit: the rest of our pits, our store, the
+                // opponent's pits and then our pits up to the one we emptied.
+                int slot = (pit + r) % CYCLE;
+
+                if (slot >= 1 && slot <= PITS)
+                {
+                    own += 1L << (slot << 3);
+                    LANDING[pit][r] = slot;
+                }
+                else if (slot == PITS + 1)
+                {
+                    own += 1L;
+                    LANDING[pit][r] = 0;
+                }
+                else
+                {
+                    int oppPit = (slot == 0) ? PITS : slot - PITS - 1;
+                    opp += 1L << (oppPit << 3);
+                    LANDING[pit][r] = OPPONENT_SIDE;
+                }
+
+                OWN_ADD[pit][r] = own;
+                OPP_ADD[pit][r] = opp;
+            }
+        }
+    }
+
+    // The starting position of every game (OPP_LAP has a 1 in every pit).
+    public static final Board INITIAL = new Board(OPP_LAP * STONES, OPP_LAP
+            * STONES);
+
+    // Packed counts for South (player 0) and North (player 1).
+    private final long south;
+    private final long north;
+
+    public Board(long south, long north)
+    {
+        this.south = south;
+        this.north = north;
+    }
+
+    /**
+     * Method that builds a position from the int[2][8] layout used by the
+     * protocol layer.
+     *
+     * @param state
+     *            The state, indexed by [player][pit] with pit 0 the store.
+     *
+     * @return board The equivalent position.
+     */
+    public static Board fromArray(int[][] state)
+    {
+        return new Board(pack(state[0]), pack(state[1]));
+    }
+
+    /**
+     * Method that unpacks the position into a freshly allocated int[2][8].
+     *
+     * @return state The state, indexed by [player][pit] with pit 0 the store.
+     */
+    public int[][] toArray()
+    {
+        int[][] state = new int[2][PITS + 1];
+        for (int i = 0; i <= PITS; i++)
+        {
+            state[0][i] = lane(south, i);
+            state[1][i] = lane(north, i);
+        }
+
+        return state;
+    }
+
+    public long getSouth()
+    {
+        return south;
+    }
+
+    public long getNorth()
+    {
+        return north;
+    }
+
+    public long side(int player)
+    {
+        return player == 0 ? south : north;
+    }
+
+    // Number of stones in a pit (pit 0 being the store) of a player.
+    public int get(int player, int pit)
+    {
+        return lane(side(player), pit);
+    }
+
+    public int getStore(int player)
+    {
+        return lane(side(player), 0);
+    }
+
+    // Number of stones left in the pits (not the store) of a player.
+    public int seedsInPits(int player)
+    {
+        return sumPits(side(player));
+    }
+
+    // Whether all the pits of a player are empty.
+    public boolean isSideEmpty(int player)
+    {
+        return (side(player) & ~0xFFL) == 0;
+    }
+
+    // The game is over as soon as either player runs out of stones to move.
+    public boolean isGameOver()
+    {
+        return isSideEmpty(0) || isSideEmpty(1);
+    }
+
+    // Whether either player's store holds more than half the stones, which
+    // decides the game before it is over.
+    public boolean isDecided()
+    {
+        return isDecided(south, north);
+    }
+
+    // Whether either store of a packed position holds a majority.
+    public static boolean isDecided(long south, long north)
+    {
+        return lane(south, 0) >= MAJORITY || lane(north, 0) >= MAJORITY;
+    }
+
+    /**
+     * Method that returns the final score of a player, i.e. the stones in the
+     * store plus the stones still in the player's pits (which the player
+     * collects once the game has ended).
+     *
+     * @param player
+     *            The player.
+     *
+     * @return score The player's score.
+     */
+    public int finalScore(int player)
+    {
+        long s = side(player);
+        return lane(s, 0) + sumPits(s);
+    }
+
+    // Whether the position is the starting position of the game.
+    public boolean isInitial()
+    {
+        return south == INITIAL.south && north == INITIAL.north;
+    }
+
+    /**
+     * Method that checks whether a player may SWAP instead of moving. North
+     * gets that choice only straight after South's first move of the game,
+     * which always leaves exactly one stone in South's store and none in
+     * North's (any later move by North puts stones in North's store, and a
+     * SWAP mirrors the board so South's store is empty afterwards).
+     *
+     * @param player
+     *            The player to move.
+     *
+     * @return canSwap Whether SWAP is a legal move.
+     */
+    public boolean canSwap(int player)
+    {
+        return player == 1 && (south & 0xFF) == 1 && (north & 0xFF) == 0;
+    }
+
+    /**
+     * Method that returns a bit mask of the pits a player can move, bit i
+     * being set if pit i (1-7) holds at least one stone.
+     *
+     * @param player
+     *            The player to move.
+     *
+     * @return mask The legal pits.
+     */
+    public int legalMoves(int player)
+    {
+        return nonEmptyPits(side(player));
+    }
+
+    /**
+     * Method that plays a move for a player: the pit is emptied, its stones
+     * are sown and the capture rule is applied. The extra turn rule is left
+     * to the caller (see nextPlayer()). Move 0 is a SWAP.
+     *
+     * @param player
+     *            The player making the move.
+     * @param pit
+     *            The pit to sow from (1-7), assumed to be non-empty, or 0 to
+     *            SWAP.
+     *
+     * @return board The position after the move.
+     */
+    public Board move(int player, int pit)
+    {
+        if (pit == 0)
+            return swap();
+
+        long own = side(player);
+        long opp = side(player ^ 1);
+        int stones = lane(own, pit);
+
+        long newOwn = sowOwn(own, pit, stones);
+        long newOpp = sowOpp(opp, pit, stones);
+
+        int last = LANDING[pit][stones % CYCLE];
+        if (isCapture(newOwn, newOpp, last))
+        {
+            long captured = capturedStones(newOpp, last);
+            newOwn = capture(newOwn, last, captured);
+            newOpp = clearLane(newOpp, PITS + 1 - last);
+        }
+
+        return player == 0 ? new Board(newOwn, newOpp) : new Board(newOpp,
+                newOwn);
+    }
+
+    /**
+     * Method that returns the same position seen from the other side of the
+     * board, which is how a SWAP is represented.
+     *
+     * @return board The mirrored position.
+     */
+    public Board swap()
+    {
+        return new Board(north, south);
+    }
+
+    /**
+     * Method that works out who moves after a player makes a move in this
+     * position. The player moves again if the last stone lands in the
+     * player's store, except on the first move of the game (the other player
+     * may SWAP instead); after anything else, SWAP included, it is the other
+     * player's turn.
+     *
+     * @param player
+     *            The player making the move.
+     * @param pit
+     *            The pit to sow from (1-7), or 0 to SWAP.
+     *
+     * @return next The player to move after the move.
+     */
+    public int nextPlayer(int player, int pit)
+    {
+        if (pit != 0 && !isInitial() && extraTurn(pit, get(player, pit)))
+            return player;
+
+        return player ^ 1;
+    }
+
+    // Whether sowing a number of stones from a pit ends in the player's store.
+    public static boolean extraTurn(int pit, int stones)
+    {
+        return LANDING[pit][stones % CYCLE] == 0;
+    }
+
+    // Where the last stone of a sowing lands (see LANDING).
+    public static int landing(int pit, int stones)
+    {
+        return LANDING[pit][stones % CYCLE];
+    }
+
+    // Number of stones in a lane of a packed side.
+    public static int lane(long side, int pit)
+    {
+        return (int) (side >>> (pit << 3)) & 0xFF;
+    }
+
+    // Bit mask of the non-empty pits (bits 1-7) of a packed side.
+    public static int nonEmptyPits(long side)
+    {
+        // Set the top bit of every non-empty pit lane (adding 0x7F to the low
+        // seven bits carries into the top bit unless they are all zero), then
+        // gather the top bits into one byte with a multiply.
+        long pits = side & ~0xFFL;
+        long nonEmpty = (((pits & LOW_BITS) + LOW_BITS) | pits) & ~LOW_BITS;
+        return (int) (((nonEmpty >>> 7) * 0x0102040810204080L) >>> 56);
+    }
+
+    // Sum of the pits (not the store) of a packed side.
+    public static int sumPits(long side)
+    {
+        // Add the lanes pairwise; no lane can overflow as there are only
+        // TOTAL_STONES stones in the game.
+        long pits = side & ~0xFFL;
+        long pairs = (pits & 0x00FF00FF00FF00FFL)
+                + ((pits >>> 8) & 0x00FF00FF00FF00FFL);
+        long quads = (pairs & 0x0000FFFF0000FFFFL)
+                + ((pairs >>> 16) & 0x0000FFFF0000FFFFL);
+        return (int) ((quads & 0xFFFFFFFFL) + (quads >>> 32));
+    }
+
+    // The side of the player sowing, after sowing from a pit.
+    static long sowOwn(long own, int pit, int stones)
+    {
+        return clearLane(own, pit) + (stones / CYCLE) * OWN_LAP
+                + OWN_ADD[pit][stones % CYCLE];
+    }
+
+    // The side of the opponent, after the player sows from a pit.
+    static long sowOpp(long opp, int pit, int stones)
+    {
+        return opp + (stones / CYCLE) * OPP_LAP + OPP_ADD[pit][stones % CYCLE];
+    }
+
+    // Whether the last stone landed in an empty pit of the player's own side,
+    // opposite a non-empty pit of the opponent.
+    static boolean isCapture(long newOwn, long newOpp, int last)
+    {
+        return last > 0 && lane(newOwn, last) == 1
+                && lane(newOpp, PITS + 1 - last) != 0;
+    }
+
+    static long capturedStones(long newOpp, int last)
+    {
+        return lane(newOpp, PITS + 1 - last);
+    }
+
+    // Moves the capturing stone and the captured stones into the store.
+    static long capture(long newOwn, int last, long captured)
+    {
+        return clearLane(newOwn, last) + captured + 1;
+    }
+
+    static long clearLane(long side, int pit)
+    {
+        return side & ~(0xFFL << (pit << 3));
+    }
+
+    static long pack(int[] counts)
+    {
+        long side = 0;
+        for (int i = 0; i <= PITS; i++)
+            side |= ((long) counts[i] & 0xFF) << (i << 3);
+
+        return side;
+    }
+
+    public boolean equals(Object other)
+    {
+        if (!(other instanceof Board))
+            return false;
+
+        Board b = (Board) other;
+        return south == b.south && north == b.north;
+    }
+
+    public int hashCode()
+    {
+        long h = south * 0x9E3779B97F4A7C15L ^ north;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\nPlayer South [");
+        for (int i = 0; i <= PITS; i++)
+            sb.append(i == 0 ? "" : ", ").append(lane(south, i));
+        sb.append("]\nPlayer North[");
+        for (int i = 0; i <= PITS; i++)
+            sb.append(i == 0 ? "" : ", ").append(lane(north, i));
+        sb.append("]\n");
+
+        return sb.toString();
+    }
+}
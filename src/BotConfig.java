@@ -0,0 +1,512 @@
+import java.util.Properties;
+
+/**
+ * Class that holds the settings of a KalahBot. The bot is started by the game
+ * engine, so the settings are read from system properties (for example
+ * java -Dkalah.clock=300000 -jar KalahBot.jar), falling back to the defaults
+ * below for anything not given.
+ */
+public class BotConfig
+{
+    // Default total time for the whole match, in milliseconds.
+    public static final long DEFAULT_CLOCK_MILLIS = 120000;
+
+    // Total time for the whole match (kalah.clock), shared out by the
+    // TimeManager.
+    private long clockMillis = DEFAULT_CLOCK_MILLIS;
+
+    // Fixed time per move (kalah.movetime); replaces the time manager.
+    private long moveTimeMillis = SearchBudget.UNLIMITED;
+
+    // Fixed number of simulations per move (kalah.sims).
+    private long simulations = SearchBudget.UNLIMITED;
+
+    // Fixed number of tree nodes per move (kalah.nodes).
+    private long nodes = SearchBudget.UNLIMITED;
+
+    // Number of search threads (kalah.threads), one per core by default.
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // The search engine (kalah.engine=mcts or alphabeta). Alpha-beta runs on
+    // one thread, and uses the memory of the node pool for its
+    // transposition table.
+    private EngineType engineType = EngineType.MCTS;
+
+    // How the threads share the work (kalah.parallel=tree, root or leaf).
+    private ParallelMode parallelMode = ParallelMode.TREE;
+
+    // Most virtual losses per running simulation that kalah.virtualloss may
+    // ask for, well clear of overflowing the visit counts.
+    private static final int MAX_VIRTUAL_LOSS = 1000;
+
+    // Virtual losses per running simulation in a shared tree
+    // (kalah.virtualloss).
+    private int virtualLoss = SharedTreeSearch.DEFAULT_VIRTUAL_LOSS;
+
+    // Whether to keep searching while the opponent thinks (kalah.ponder).
+    private boolean pondering = true;
+
+    // Most nodes to add to the tree while pondering, to keep memory in check
+    // however long the opponent thinks (kalah.pondernodes). Alpha-beta search
+    // adds no nodes, so for it this limits the positions searched instead.
+    private long ponderNodes = 1000000;
+
+    // Size of the node pool holding the game tree (kalah.poolnodes). With
+    // root parallelism the other threads' trees share the same amount again.
+    private int poolNodes = NodePool.defaultCapacity();
+
+    // Endgame table file built by EndgameTableBuilder (kalah.endgame), or
+    // null to play every endgame out.
+    private String endgameFile = null;
+
+    // Opening book file built by OpeningBookBuilder (kalah.book), or null to
+    // search every move.
+    private String bookFile = null;
+
+    // Where to write a line of JSON about every move (kalah.telemetry):
+    // "stderr", a file to append to, or null for no telemetry.
+    private String telemetry = null;
+
+    // Weight of the exploration term of UCT (kalah.exploration).
+    private double exploration = MonteCarloTreeSearch.DEFAULT_EXPLORATION;
+
+    // How the playouts choose their moves (kalah.playout=random, greedy or
+    // softmax, optionally followed by :epsilon or :temperature), and the
+    // most moves they play before being scored by the stores
+    // (kalah.playoutdepth).
+    private PlayoutPolicy playoutPolicy = PlayoutPolicy.RANDOM;
+
+    // Seed of the random playouts (kalah.seed), or null for different
+    // playouts every run. With a seed and a budget of simulations, a search on
+    // one thread, or with root or leaf parallelism, can be repeated exactly.
+    private Long seed = null;
+
+    // Playouts per expanded leaf with leaf parallelism (kalah.leafbatch).
+    private int leafBatch = threads
+            * LeafParallelSearch.DEFAULT_PLAYOUTS_PER_THREAD;
+
+    /**
+     * Method that reads a configuration from the system properties.
+     *
+     * @return config The configuration.
+     */
+    public static BotConfig fromSystemProperties()
+    {
+        return fromProperties(System.getProperties(), "kalah.");
+    }
+
+    /**
+     * Method that reads a configuration from a set of properties named like
+     * the system properties, but with another prefix in place of "kalah.".
+     * A setting that is missing keeps its default. So does one that is not
+     * valid (not a number, a number out of range such as fewer than one
+     * thread, not true or false, not one of the engines or parallel modes,
+     * or not a playout policy), with a warning on standard error saying what
+     * was expected, so that a mistyped setting never stops the bot.
+     *
+     * @param properties
+     *            The properties.
+     * @param prefix
+     *            The prefix of the names of the settings.
+     *
+     * @return config The configuration.
+     */
+    public static BotConfig fromProperties(Properties properties,
+            String prefix)
+    {
+        BotConfig config = new BotConfig();
+
+        config.clockMillis = getLong(properties, prefix + "clock",
+                config.clockMillis, 1, Long.MAX_VALUE);
+        config.moveTimeMillis = getLong(properties, prefix + "movetime",
+                config.moveTimeMillis, 1, Long.MAX_VALUE);
+        config.simulations = getLong(properties, prefix + "sims",
+                config.simulations, 1, Long.MAX_VALUE);
+        config.nodes = getLong(properties, prefix + "nodes", config.nodes,
+                1, Long.MAX_VALUE);
+        config.threads = getInt(properties, prefix + "threads",
+                config.threads, 1, Integer.MAX_VALUE);
+        config.engineType = getEnum(properties, prefix + "engine",
+                config.engineType);
+        config.parallelMode = getEnum(properties, prefix + "parallel",
+                config.parallelMode);
+        config.virtualLoss = getInt(properties, prefix + "virtualloss",
+                config.virtualLoss, 0, MAX_VIRTUAL_LOSS);
+        config.leafBatch = getInt(properties, prefix + "leafbatch",
+                (int) Math.min(Integer.MAX_VALUE, (long) config.threads
+                        * LeafParallelSearch.DEFAULT_PLAYOUTS_PER_THREAD), 1,
+                Integer.MAX_VALUE);
+        config.exploration = getDouble(properties, prefix + "exploration",
+                config.exploration, 0);
+        config.playoutPolicy = getPolicy(properties, prefix + "playout",
+                config.playoutPolicy);
+        config.playoutPolicy = config.playoutPolicy.withMaxMoves(getInt(
+                properties, prefix + "playoutdepth", config.playoutPolicy
+                        .getMaxMoves(), 1, PlayoutPolicy.UNLIMITED));
+        config.seed = getSeed(properties, prefix + "seed", config.seed);
+        config.pondering = getBoolean(properties, prefix + "ponder",
+                config.pondering);
+        config.ponderNodes = getLong(properties, prefix + "pondernodes",
+                config.ponderNodes, 1, Long.MAX_VALUE);
+        config.poolNodes = getInt(properties, prefix + "poolnodes",
+                config.poolNodes, 1, Integer.MAX_VALUE);
+        config.endgameFile = properties.getProperty(prefix + "endgame",
+                config.endgameFile);
+        config.bookFile = properties.getProperty(prefix + "book",
+                config.bookFile);
+        config.telemetry = properties.getProperty(prefix + "telemetry",
+                config.telemetry);
+
+        return config;
+    }
+
+    // Reads a whole number setting the way Long.getLong() does.
+    private static long getLong(Properties properties, String name,
+            long defaultValue)
+    {
+        String value = properties.getProperty(name);
+        try
+        {
+            return value == null ? defaultValue : Long.decode(value);
+        }
+        catch (NumberFormatException e)
+        {
+            warn(name, value, "a whole number");
+            return defaultValue;
+        }
+    }
+
+    // Reads a whole number setting, keeping the default if it is not
+    // between min and max (inclusive).
+    private static long getLong(Properties properties, String name,
+            long defaultValue, long min, long max)
+    {
+        long value = getLong(properties, name, defaultValue);
+        if (value >= min && value <= max)
+            return value;
+
+        warn(name, properties.getProperty(name), "a whole number from "
+                + min + " to " + max);
+        return defaultValue;
+    }
+
+    // Likewise for a setting that has to fit in an int.
+    private static int getInt(Properties properties, String name,
+            int defaultValue, int min, int max)
+    {
+        return (int) getLong(properties, name, defaultValue, min, max);
+    }
+
+    // Reads true or false in any case, keeping the default for anything
+    // else.
+    private static boolean getBoolean(Properties properties, String name,
+            boolean defaultValue)
+    {
+        String value = properties.getProperty(name);
+        if (value == null)
+            return defaultValue;
+
+        if (value.trim().equalsIgnoreCase("true"))
+            return true;
+
+        if (value.trim().equalsIgnoreCase("false"))
+            return false;
+
+        warn(name, value, "true or false");
+        return defaultValue;
+    }
+
+    // Reads a seed, keeping the default if it is not a valid number.
+    private static Long getSeed(Properties properties, String name,
+            Long defaultValue)
+    {
+        String value = properties.getProperty(name);
+        try
+        {
+            return value == null ? defaultValue : Long.decode(value);
+        }
+        catch (NumberFormatException e)
+        {
+            warn(name, value, "a whole number");
+            return defaultValue;
+        }
+    }
+
+    // Reads a decimal setting, keeping the default if it is not valid.
+    private static double getDouble(Properties properties, String name,
+            double defaultValue)
+    {
+        String value = properties.getProperty(name);
+        try
+        {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        }
+        catch (NumberFormatException e)
+        {
+            warn(name, value, "a number");
+            return defaultValue;
+        }
+    }
+
+    // Reads a decimal setting, keeping the default if it is not a finite
+    // number of at least min.
+    private static double getDouble(Properties properties, String name,
+            double defaultValue, double min)
+    {
+        double value = getDouble(properties, name, defaultValue);
+        if (value >= min && !Double.isInfinite(value))
+            return value;
+
+        warn(name, properties.getProperty(name), "a finite number of at least "
+                + min);
+        return defaultValue;
+    }
+
+    // Reads a setting naming one of the constants of an enum in any case,
+    // keeping the default if it names none of them.
+    private static <E extends Enum<E>> E getEnum(Properties properties,
+            String name, E defaultValue)
+    {
+        String value = properties.getProperty(name);
+        if (value == null)
+            return defaultValue;
+
+        Class<E> type = defaultValue.getDeclaringClass();
+        for (E constant : type.getEnumConstants())
+        {
+            if (constant.name().equalsIgnoreCase(value.trim()))
+                return constant;
+        }
+
+        StringBuilder expected = new StringBuilder("one of ");
+        for (E constant : type.getEnumConstants())
+        {
+            if (constant.ordinal() > 0)
+                expected.append(", ");
+            expected.append(constant.name().toLowerCase());
+        }
+
+        warn(name, value, expected.toString());
+        return defaultValue;
+    }
+
+    // Reads a playout policy, keeping the default if it is not valid.
+    private static PlayoutPolicy getPolicy(Properties properties,
+            String name, PlayoutPolicy defaultValue)
+    {
+        String value = properties.getProperty(name);
+        try
+        {
+            return value == null ? defaultValue : PlayoutPolicy.parse(value);
+        }
+        catch (IllegalArgumentException e)
+        {
+            warn(name, value, "random, greedy[:epsilon] or "
+                    + "softmax[:temperature] (" + e.getMessage() + ")");
+            return defaultValue;
+        }
+    }
+
+    // Reports a setting that is not valid, which keeps its default.
+    private static void warn(String name, String value, String expected)
+    {
+        System.err.println("Ignoring " + name + "=" + value + ": expected "
+                + expected + ", keeping the default");
+    }
+
+    // Whether every move gets the same fixed budget instead of a share of
+    // the match clock.
+    public boolean hasFixedBudget()
+    {
+        return moveTimeMillis != SearchBudget.UNLIMITED
+                || simulations != SearchBudget.UNLIMITED
+                || nodes != SearchBudget.UNLIMITED;
+    }
+
+    // The budget used for every move when hasFixedBudget() is true.
+    public SearchBudget fixedBudget()
+    {
+        return SearchBudget.ofSimulations(simulations).withTime(moveTimeMillis)
+                .withNodes(nodes);
+    }
+
+    public long getClockMillis()
+    {
+        return clockMillis;
+    }
+
+    public void setClockMillis(long clockMillis)
+    {
+        this.clockMillis = clockMillis;
+    }
+
+    public long getMoveTimeMillis()
+    {
+        return moveTimeMillis;
+    }
+
+    public void setMoveTimeMillis(long moveTimeMillis)
+    {
+        this.moveTimeMillis = moveTimeMillis;
+    }
+
+    public long getSimulations()
+    {
+        return simulations;
+    }
+
+    public void setSimulations(long simulations)
+    {
+        this.simulations = simulations;
+    }
+
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    public void setNodes(long nodes)
+    {
+        this.nodes = nodes;
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
+    public EngineType getEngineType()
+    {
+        return engineType;
+    }
+
+    public void setEngineType(EngineType engineType)
+    {
+        this.engineType = engineType;
+    }
+
+    public ParallelMode getParallelMode()
+    {
+        return parallelMode;
+    }
+
+    public void setParallelMode(ParallelMode parallelMode)
+    {
+        this.parallelMode = parallelMode;
+    }
+
+    public int getVirtualLoss()
+    {
+        return virtualLoss;
+    }
+
+    public void setVirtualLoss(int virtualLoss)
+    {
+        this.virtualLoss = virtualLoss;
+    }
+
+    public boolean isPondering()
+    {
+        return pondering;
+    }
+
+    public void setPondering(boolean pondering)
+    {
+        this.pondering = pondering;
+    }
+
+    public long getPonderNodes()
+    {
+        return ponderNodes;
+    }
+
+    public void setPonderNodes(long ponderNodes)
+    {
+        this.ponderNodes = ponderNodes;
+    }
+
+    public int getPoolNodes()
+    {
+        return poolNodes;
+    }
+
+    public void setPoolNodes(int poolNodes)
+    {
+        this.poolNodes = poolNodes;
+    }
+
+    public String getEndgameFile()
+    {
+        return endgameFile;
+    }
+
+    public void setEndgameFile(String endgameFile)
+    {
+        this.endgameFile = endgameFile;
+    }
+
+    public String getBookFile()
+    {
+        return bookFile;
+    }
+
+    public void setBookFile(String bookFile)
+    {
+        this.bookFile = bookFile;
+    }
+
+    public String getTelemetry()
+    {
+        return telemetry;
+    }
+
+    public void setTelemetry(String telemetry)
+    {
+        this.telemetry = telemetry;
+    }
+
+    public double getExploration()
+    {
+        return exploration;
+    }
+
+    public void setExploration(double exploration)
+    {
+        this.exploration = exploration;
+    }
+
+    public PlayoutPolicy getPlayoutPolicy()
+    {
+        return playoutPolicy;
+    }
+
+    public void setPlayoutPolicy(PlayoutPolicy playoutPolicy)
+    {
+        this.playoutPolicy = playoutPolicy;
+    }
+
+    public Long getSeed()
+    {
+        return seed;
+    }
+
+    public void setSeed(Long seed)
+    {
+        this.seed = seed;
+    }
+
+    public int getLeafBatch()
+    {
+        return leafBatch;
+    }
+
+    public void setLeafBatch(int leafBatch)
+    {
+        this.leafBatch = leafBatch;
+    }
+}
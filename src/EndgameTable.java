@@ -0,0 +1,274 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that gives the exact value of endgame positions, read from a table
+ * file built by EndgameTableBuilder and memory-mapped, so only the pages a
+ * search touches are read from disk.
+ *
+ * The stones in the stores are already won, so the value of a position only
+ * depends on the pits and on who is to move: it is how many more stones the
+ * player to move ends up with than the opponent, out of the stones still in
+ * the pits, if both players play perfectly. The table holds it as a signed
+ * byte for every position with at most maxSeeds stones in the pits, indexed
+ * by the number of stones and then by the rank of the fourteen pit counts
+ * (the mover's pits 1-7, then the opponent's) among all the ways of sharing
+ * that number of stones out.
+ *
+ * File layout: the int MAGIC, the int maxSeeds, then the values in index
+ * order.
+ */
+public class EndgameTable
+{
+    // First four bytes of a table file ("KTB1").
+    public static final int MAGIC = 0x4B544231;
+
+    // Bytes before the first value.
+    public static final int HEADER_BYTES = 8;
+
+    // Largest table that fits in one mapping.
+    public static final int MAX_SEEDS = 20;
+
+    // Number of pits on the board.
+    private static final int PIT_COUNT = 2 * Board.PITS;
+
+    // WAYS[parts][stones]: the number of ways of sharing a number of stones
+    // out over a number of pits.
+    private static final long[][] WAYS = new long[PIT_COUNT + 1][MAX_SEEDS + 1];
+
+    // BELOW[parts][stones][count]: the number of ways of sharing the stones
+    // out over the pits with fewer than count stones in the first pit, i.e.
+    // what a first pit with count stones adds to the rank.
+    private static final long[][][] BELOW =
+            new long[PIT_COUNT + 1][MAX_SEEDS + 1][MAX_SEEDS + 2];
+
+    // LEVEL[stones]: the index of the first position with that many stones
+    // in the pits.
+    private static final long[] LEVEL = new long[MAX_SEEDS + 2];
+
+    static
+    {
+        for (int stones = 0; stones <= MAX_SEEDS; stones++)
+            WAYS[1][stones] = 1;
+
+        for (int parts = 2; parts <= PIT_COUNT; parts++)
+        {
+            for (int stones = 0; stones <= MAX_SEEDS; stones++)
+            {
+                for (int first = 0; first <= stones; first++)
+                    WAYS[parts][stones] += WAYS[parts - 1][stones - first];
+            }
+        }
+
+        for (int parts = 2; parts <= PIT_COUNT; parts++)
+        {
+            for (int stones = 0; stones <= MAX_SEEDS; stones++)
+            {
+                long[] below = BELOW[parts][stones];
+                for (int count = 0; count <= stones; count++)
+                    below[count + 1] = below[count]
+                            + WAYS[parts - 1][stones - count];
+            }
+        }
+
+        for (int stones = 0; stones <= MAX_SEEDS; stones++)
+            LEVEL[stones + 1] = LEVEL[stones] + WAYS[PIT_COUNT][stones];
+    }
+
+    // The values, after the header.
+    private final MappedByteBuffer values;
+
+    // Positions with more stones than this are not in the table.
+    private final int maxSeeds;
+
+    private EndgameTable(MappedByteBuffer values, int maxSeeds)
+    {
+        this.values = values;
+        this.maxSeeds = maxSeeds;
+    }
+
+    /**
+     * Method that maps a table file into memory.
+     *
+     * @param file
+     *            The path of the file.
+     *
+     * @return table The table.
+     *
+     * @throws IOException
+     *             If the file can't be read or is not a valid table.
+     */
+    public static EndgameTable open(String file) throws IOException
+    {
+        Path path = Paths.get(file);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ))
+        {
+            MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+
+            if (channel.size() < HEADER_BYTES || values.getInt(0) != MAGIC)
+                throw new IOException(file + " is not an endgame table");
+
+            int maxSeeds = values.getInt(4);
+            if (maxSeeds < 0 || maxSeeds > MAX_SEEDS
+                    || channel.size() != fileSize(maxSeeds))
+                throw new IOException(file + " is truncated or corrupt");
+
+            return new EndgameTable(values, maxSeeds);
+        }
+    }
+
+    // Size of the file of a table of positions with up to maxSeeds stones.
+    public static long fileSize(int maxSeeds)
+    {
+        return HEADER_BYTES + LEVEL[maxSeeds + 1];
+    }
+
+    public int getMaxSeeds()
+    {
+        return maxSeeds;
+    }
+
+    // Whether a position is in the table.
+    public boolean covers(Board board)
+    {
+        return covers(board.getSouth(), board.getNorth());
+    }
+
+    // Whether a packed position is in the table.
+    public boolean covers(long south, long north)
+    {
+        return Board.sumPits(south) + Board.sumPits(north) <= maxSeeds;
+    }
+
+    /**
+     * Method that looks up the value of a position in the table.
+     *
+     * @param board
+     *            The position, which must be covered by the table.
+     * @param toMove
+     *            The player to move.
+     *
+     * @return value How many more of the stones in the pits the player to
+     *         move ends up with than the opponent, with perfect play.
+     */
+    public int value(Board board, int toMove)
+    {
+        long own = board.side(toMove);
+        long opp = board.side(toMove ^ 1);
+        int stones = Board.sumPits(own) + Board.sumPits(opp);
+
+        return values.get((int) (HEADER_BYTES + index(own, opp, stones)));
+    }
+
+    /**
+     * Method that works out the final score difference of a game from a
+     * covered position with perfect play.
+     *
+     * @param board
+     *            The position, which must be covered by the table.
+     * @param toMove
+     *            The player to move.
+     *
+     * @return difference South's final score minus North's.
+     */
+    public int finalDifference(Board board, int toMove)
+    {
+        int value = value(board, toMove);
+        return board.getStore(0) - board.getStore(1)
+                + (toMove == 0 ? value : -value);
+    }
+
+    /**
+     * Method that works out the index of a position in the table.
+     *
+     * @param own
+     *            The packed side of the player to move (the store is
+     *            ignored).
+     * @param opp
+     *            The packed side of the opponent (the store is ignored).
+     * @param stones
+     *            The number of stones in the pits.
+     *
+     * @return index The index of the position's value.
+     */
+    static long index(long own, long opp, int stones)
+    {
+        long index = LEVEL[stones];
+        int left = stones;
+
+        // The last pit gets whatever is left, so it adds nothing.
+        for (int pit = 0; pit < PIT_COUNT - 1; pit++)
+        {
+            int count = pitCount(own, opp, pit);
+            index += BELOW[PIT_COUNT - pit][left][count];
+            left -= count;
+        }
+
+        return index;
+    }
+
+    /**
+     * Method that works out the position at an index of the table, the
+     * reverse of index().
+     *
+     * @param index
+     *            The index, of a position with the given number of stones.
+     * @param stones
+     *            The number of stones in the pits.
+     *
+     * @return sides The packed side of the player to move and of the
+     *         opponent, with empty stores.
+     */
+    static long[] position(long index, int stones)
+    {
+        long rank = index - LEVEL[stones];
+        long[] sides = new long[2];
+        int left = stones;
+
+        for (int pit = 0; pit < PIT_COUNT; pit++)
+        {
+            int count = left;
+            if (pit < PIT_COUNT - 1)
+            {
+                long[] below = BELOW[PIT_COUNT - pit][left];
+                count = 0;
+                while (rank >= below[count + 1])
+                    count++;
+
+                rank -= below[count];
+            }
+
+            sides[pit / Board.PITS] |= (long) count << ((pit % Board.PITS
+                    + 1) << 3);
+            left -= count;
+        }
+
+        return sides;
+    }
+
+    // The number of stones in pit 0-13 of the position (0-6 being the
+    // mover's pits 1-7 and 7-13 the opponent's).
+    private static int pitCount(long own, long opp, int pit)
+    {
+        return pit < Board.PITS ? Board.lane(own, pit + 1) : Board.lane(opp,
+                pit - Board.PITS + 1);
+    }
+
+    // Index of the first position with more stones than the given number.
+    static long levelEnd(int stones)
+    {
+        return LEVEL[stones + 1];
+    }
+
+    // Index of the first position with the given number of stones.
+    static long levelStart(int stones)
+    {
+        return LEVEL[stones];
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tool that builds the endgame table read by EndgameTable, solving every
+ * position with up to a given number of stones in the pits.
+ *
+ * The positions are solved backwards, in order of the number of stones in
+ * the pits: a move never adds stones to the pits, so a position only leads
+ * to positions with fewer stones, which are already solved, or with the same
+ * number, when no stone reaches a store. Those moves stay on the mover's
+ * side of the board and can't go round in circles, so the positions of the
+ * same level are solved recursively, each value being written to the table
+ * as soon as it is known. Every level is split between the threads, which
+ * write straight into the memory-mapped file; two threads solving the same
+ * position write the same value, so they need no locking.
+ *
+ * Usage: java EndgameTableBuilder file [maxSeeds] [threads]
+ */
+public class EndgameTableBuilder
+{
+    // Default number of stones in the pits covered by the table.
+    public static final int DEFAULT_MAX_SEEDS = 14;
+
+    // Value of a position not solved yet (no real value is that large).
+    private static final byte UNKNOWN = Byte.MAX_VALUE;
+
+    // Positions handed to a thread at a time.
+    private static final int CHUNK = 4096;
+
+    // The table being built.
+    private final MappedByteBuffer table;
+
+    public EndgameTableBuilder(MappedByteBuffer table)
+    {
+        this.table = table;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: java EndgameTableBuilder file "
+                    + "[maxSeeds] [threads]");
+            System.exit(1);
+        }
+
+        int maxSeeds = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_MAX_SEEDS;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime
+                .getRuntime().availableProcessors();
+
+        if (maxSeeds < 0 || maxSeeds > EndgameTable.MAX_SEEDS)
+            throw new IllegalArgumentException("maxSeeds must be 0 to "
+                    + EndgameTable.MAX_SEEDS);
+
+        long start = System.nanoTime();
+        build(args[0], maxSeeds, threads);
+
+        System.out.printf("%d positions in %.1f s%n", EndgameTable
+                .levelEnd(maxSeeds), (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Method that builds a table file.
+     *
+     * @param file
+     *            The path of the file to write.
+     * @param maxSeeds
+     *            The most stones in the pits of a position in the table.
+     * @param threads
+     *            The number of threads to solve with.
+     *
+     * @throws IOException
+     *             If the file can't be written.
+     */
+    public static void build(String file, int maxSeeds, int threads)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            MappedByteBuffer table = channel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, EndgameTable
+                            .fileSize(maxSeeds));
+            EndgameTableBuilder builder = new EndgameTableBuilder(table);
+
+            for (int stones = 0; stones <= maxSeeds; stones++)
+                builder.solveLevel(stones, threads);
+
+            // Only mark the file as a table once it is complete.
+            table.putInt(4, maxSeeds);
+            table.putInt(0, EndgameTable.MAGIC);
+            table.force();
+        }
+    }
+
+    /**
+     * Method that solves all the positions with a given number of stones in
+     * the pits, sharing them out between threads in chunks.
+     *
+     * @param stones
+     *            The number of stones.
+     * @param threads
+     *            The number of threads.
+     */
+    private void solveLevel(final int stones, int threads)
+    {
+        final long start = EndgameTable.levelStart(stones);
+        final long end = EndgameTable.levelEnd(stones);
+
+        for (long i = start; i < end; i++)
+            table.put(offset(i), UNKNOWN);
+
+        final AtomicLong next = new AtomicLong(start);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++)
+        {
+            workers[t] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    long first;
+                    while ((first = next.getAndAdd(CHUNK)) < end)
+                    {
+                        long last = Math.min(end, first + CHUNK);
+                        for (long i = first; i < last; i++)
+                        {
+                            long[] sides = EndgameTable.position(i, stones);
+                            solve(sides[0], sides[1], stones);
+                        }
+                    }
+                }
+            }, "endgame-" + t);
+            workers[t].start();
+        }
+
+        for (int t = 0; t < threads; t++)
+            Utilities.join(workers[t]);
+    }
+
+    /**
+     * Method that solves a position, using the values already in the table
+     * for the positions it leads to and solving them first where they are
+     * not.
+     *
+     * @param own
+     *            The packed pits of the player to move (empty store).
+     * @param opp
+     *            The packed pits of the opponent (empty store).
+     * @param stones
+     *            The number of stones in the pits.
+     *
+     * @return value How many more of the stones in the pits the player to
+     *         move ends up with than the opponent, with perfect play.
+     */
+    private int solve(long own, long opp, int stones)
+    {
+        int index = offset(EndgameTable.index(own, opp, stones));
+        int value = table.get(index);
+        if (value != UNKNOWN)
+            return value;
+
+        int ownStones = Board.sumPits(own);
+        if (ownStones == 0 || ownStones == stones)
+        {
+            // The game is over, and each player takes the stones on their
+            // own side.
+            value = 2 * ownStones - stones;
+        }
+        else
+        {
+            value = Integer.MIN_VALUE;
+            int moves = Board.nonEmptyPits(own);
+
+            for (int pit = 1; pit <= Board.PITS; pit++)
+            {
+                if ((moves & (1 << pit)) != 0)
+                    value = Math.max(value, moveValue(own, opp, stones, pit));
+            }
+        }
+
+        table.put(index, (byte) value);
+        return value;
+    }
+
+    // The value of a position for the player to move after making a move.
+    private int moveValue(long own, long opp, int stones, int pit)
+    {
+        int sown = Board.lane(own, pit);
+        long newOwn = Board.sowOwn(own, pit, sown);
+        long newOpp = Board.sowOpp(opp, pit, sown);
+        int last = Board.landing(pit, sown);
+
+        if (Board.isCapture(newOwn, newOpp, last))
+        {
+            newOwn = Board.capture(newOwn, last, Board.capturedStones(newOpp,
+                    last));
+            newOpp = Board.clearLane(newOpp, Board.PITS + 1 - last);
+        }
+
+        // Whatever went into the store is won for good.
+        int banked = Board.lane(newOwn, 0);
+        newOwn = Board.clearLane(newOwn, 0);
+        int left = stones - banked;
+
+        // Last stone in the store: move again.
+        if (last == 0)
+            return banked + solve(newOwn, newOpp, left);
+
+        return banked - solve(newOpp, newOwn, left);
+    }
+
+    private static int offset(long index)
+    {
+        return (int) (EndgameTable.HEADER_BYTES + index);
+    }
+}
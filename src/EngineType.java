@@ -0,0 +1,11 @@
+/**
+ * The searches the bot can choose its moves with (see BotConfig).
+ */
+public enum EngineType
+{
+    // Monte Carlo Tree Search, on the threads as ParallelMode says.
+    MCTS,
+
+    // Iterative deepening alpha-beta on one thread (AlphaBetaSearch).
+    ALPHABETA
+}
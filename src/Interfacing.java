@@ -1,12 +1,19 @@
-import java.io.BufferedReader;
-import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Interfacing class that is a layer between our BOT and the game engine. This
  * class also does the validation
+ *
+ * Messages are read a buffer of bytes at a time and parsed in place, straight
+ * into a Message and a board that are reused for every message, and moves are
+ * sent from messages built in advance, so talking to the engine allocates
+ * nothing. The Message returned by getAndInterpret() is only valid until the
+ * next call.
  */
 public class Interfacing
 {
@@ -14,187 +21,251 @@ public class Interfacing
     /**
      * Input from the game engine.
      */
-    private static Reader input = new BufferedReader(new InputStreamReader(
-            System.in));
+    private static InputStream input = System.in;
 
     /**
-     * Sends a message to the game engine.
+     * Output to the game engine (unbuffered: every message is one write).
+     */
+    private static OutputStream output = new FileOutputStream(
+            FileDescriptor.out);
+
+    /**
+     * Bytes read from the input and not parsed yet: those from next up to
+     * end.
+     */
+    private static final byte[] buffer = new byte[4096];
+    private static int next;
+    private static int end;
+
+    /**
+     * The message returned by getAndInterpret(), and the state it holds.
+     */
+    private static final int[][] curState = new int[2][8];
+    private static final Message message = new Message(MessageType.END, -1,
+            null, 1);
+
+    /**
+     * The messages sending each move, 0 being SWAP.
+     */
+    private static final byte[][] moveMessages = new byte[8][];
+
+    static
+    {
+        moveMessages[0] = "SWAP\n".getBytes(StandardCharsets.US_ASCII);
+        for (int move = 1; move < moveMessages.length; move++)
+            moveMessages[move] = ("MOVE;" + move + "\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Replaces the input the messages are read from, so they can be fed from
+     * somewhere other than the game engine (such as a benchmark).
      * 
-     * @param msg
-     *            The message.
+     * @param in
+     *            The new input.
      */
-    private static void sendMsg(String msg)
+    static void setInput(InputStream in)
     {
-        System.out.println(msg);
-        System.out.flush();
+        input = in;
+        next = 0;
+        end = 0;
     }
 
     /**
-     * Receives a message from the game engine. Messages are terminated by a
-     * '\n' character.
+     * Replaces the output the moves are sent to.
      * 
-     * @return The message.
+     * @param out
+     *            The new output.
+     */
+    static void setOutput(OutputStream out)
+    {
+        output = out;
+    }
+
+    /**
+     * Reads the next byte from the game engine.
+     * 
+     * @return The byte, or -1 if the engine has gone away.
      * @throws IOException
      *             if there has been an I/O error.
      */
-    private static String recvMsg() throws IOException, EOFException
+    private static int read() throws IOException
     {
-        StringBuilder message = new StringBuilder();
-        int newCharacter;
-
-        try
-        {
-            do
-            {
-                newCharacter = input.read();
-                if (newCharacter == -1)
-                    throw new EOFException("This is a stupid error");
-                message.append((char) newCharacter);
-            } while ((char) newCharacter != '\n');
-        } 
-	catch (Exception E)
+        if (next == end)
         {
-            System.out.println("Stupid error 1");
+            int count = input.read(buffer, 0, buffer.length);
+            if (count <= 0)
+                return -1;
+
+            next = 0;
+            end = count;
         }
 
-        return message.toString();
+        return buffer[next++];
     }
 
     /**
-     * This method interprets the message to "something" that our agent can
-     * understand.
+     * Reads up to and including the next occurrence of a character, or to
+     * the end of the input.
      * 
-     * @param s
-     *            Message from game engine
+     * @param c
+     *            The character.
+     * @throws IOException
+     *             if there has been an I/O error.
+     */
+    private static void skipPast(char c) throws IOException
+    {
+        int b;
+        do
+        {
+            b = read();
+        } while (b != c && b != -1);
+    }
+
+    /**
+     * Reads a number, and the character after it.
      * 
-     * @return An (Object) Message (see Message class for more details)
+     * @param first
+     *            The first character of the number, already read.
+     * @return The number.
      * @throws IOException
+     *             if there has been an I/O error, or the number is missing.
      */
-    public static Message getAndInterpret()
+    private static int readNumber(int first) throws IOException
     {
-        Message m;
-        String s = null;
+        if (first < '0' || first > '9')
+            throw new IOException("Expected a number in a CHANGE message");
+
+        int value = 0;
+        for (int c = first; c >= '0' && c <= '9'; c = read())
+            value = 10 * value + (c - '0');
 
+        return value;
+    }
+
+    /**
+     * This method interprets the message to "something" that our agent can
+     * understand.
+     * 
+     * @return An (Object) Message (see Message class for more details),
+     *         reused by the next call
+     */
+    public static Message getAndInterpret()
+    {
         try
         {
-            s = recvMsg();
-        } 
-	catch (Exception e)
+            interpret();
+        }
+        catch (IOException e)
         {
-            System.out.println("Error 2");
+            // The engine has gone away, so the game is over for us.
+            System.err.println("Lost the game engine: " + e.getMessage());
+            message.set(MessageType.END, -1, null, 1);
         }
 
+        return message;
+    }
+
+    /**
+     * Reads a message and fills in the message and the state with it.
+     * 
+     * @throws IOException
+     *             if there has been an I/O error or the message is broken.
+     */
+    private static void interpret() throws IOException
+    {
         // interpret type of message
-        switch (s.charAt(0))
+        switch (read())
         {
         // START message
         // return a message (START type), the initial game status, and who
         // to make a move first.
             case 'S':
-                int[][] initState =
+                skipPast(';');
+                int side = read();
+                skipPast('\n');
+
+                for (int player = 0; player < 2; player++)
                 {
-                { 0, 7, 7, 7, 7, 7, 7, 7 },
-                { 0, 7, 7, 7, 7, 7, 7, 7 } };
-                if (s.charAt(6) == 'S')
-                    m = new Message(MessageType.START, -1, initState, 0);
-                else
-                    m = new Message(MessageType.START, -1, initState, 1);
+                    curState[player][0] = 0;
+                    for (int pit = 1; pit < 8; pit++)
+                        curState[player][pit] = 7;
+                }
+
+                message.set(MessageType.START, -1, curState, side == 'S' ? 0
+                        : 1);
                 break;
 
             // CHANGE message, so we know that either we or the opponent has
             // made a move
             // return a message (CHANGE type), with status of the game, last
             // move, and who to make a move next
-            // if opponent made a SWAP, return a message of SWAP type (instead
-            // of CHANGE).
+            // if a player made a SWAP, return a message of SWAP type (instead
+            // of CHANGE) with a last move of 0.
+            // if the move ended the game, return a message of END type (with
+            // the final status of the game).
             case 'C':
-                if (s.charAt(7) == 'S')
-                    m = new Message(MessageType.SWAP, 0, null, 0);
-                else
+                skipPast(';');
+
+                // last move
+                int lastMove;
+                int c = read();
+                if (c == 'S')
                 {
+                    lastMove = 0;
+                    skipPast(';');
+                }
+                else
+                    lastMove = readNumber(c);
 
-                    int[] south = new int[7];
-                    int[] north = new int[7];
-
-                    String[] s1 = s.split(";");
-                    String[] s2 = s1[2].split(",");
-
-                    // last move
-                    int lastMove = Integer.parseInt(s1[1]);
-
-                    // my table
-                    int j = 0;
-                    for (int i = 8; i <= 14; i++)
-                    {
-                        south[j] = Integer.parseInt(s2[i]);
-                        j++;
-                    }
-
-                    // opponent table
-                    j = 0;
-                    for (int i = 0; i <= 6; i++)
-                    {
-                        north[j] = Integer.parseInt(s2[i]);
-                        j++;
-                    }
-
-                    // my pot
-                    int southPot = Integer.parseInt(s2[15]);
-
-                    // opponent pot
-                    int northPot = Integer.parseInt(s2[7]);
-
-                    // my move
-                    int currentPlayer;
-                    if (s1[3].charAt(0) == 'O')
-                        currentPlayer = 1;
-                    else
-                        currentPlayer = 0;
-
-                    // create message
-                    int[][] curState = new int[2][8];
-                    curState[0][0] = southPot;
-                    curState[1][0] = northPot;
-                    for (int i = 1; i < 8; i++)
-                    {
-                        curState[0][i] = south[i - 1];
-                        curState[1][i] = north[i - 1];
-                    }
-                    m = new Message(MessageType.CHANGE, lastMove, curState,
-                            currentPlayer);
+                // opponent table and pot, then my table and pot
+                for (int i = 0; i < 16; i++)
+                {
+                    int player = (i < 8) ? 1 : 0;
+                    int pit = (i % 8 == 7) ? 0 : i % 8 + 1;
+                    curState[player][pit] = readNumber(read());
                 }
+
+                int turn = read();
+                skipPast('\n');
+
+                // my move
+                if (turn == 'E')
+                    message.set(MessageType.END, lastMove, curState, 1);
+                else
+                    message.set(lastMove == 0 ? MessageType.SWAP
+                            : MessageType.CHANGE, lastMove, curState,
+                            turn == 'O' ? 1 : 0);
                 break;
 
             // END message, so we know that the game has ended (for whatever
-            // reasons)
+            // reasons), or the engine has gone away
             // return a message (END type)
             default:
-                m = new Message(MessageType.END, -1, null, 1);
+                skipPast('\n');
+                message.set(MessageType.END, -1, null, 1);
                 break;
         }
-
-        return m;
     }
 
     /**
      * This method interpret a move to a string message and send it to game
-     * engine. If the move is not valid, throw an exception
+     * engine.
      * 
      * @param move
      *            A move (can be a integer from 1 to 7, i assume that 0 mean
      *            "SWAP")
-     * 
-     * @param m
-     *            Current state of the game
      */
     public static void InterpretAndSend(int move)
     {
-        String MessageSentToGameEngine;
-        if (move == 0)
-            MessageSentToGameEngine = "SWAP";
-        else
-            MessageSentToGameEngine = "MOVE;" + move;
-
-        sendMsg(MessageSentToGameEngine);
+        try
+        {
+            output.write(moveMessages[move]);
+            output.flush();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Lost the game engine: " + e.getMessage());
+        }
     }
 }
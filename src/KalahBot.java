@@ -1,12 +1,54 @@
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Class that represents an AI bot that can play a game of Kalah. It uses Monte
- * Carlo Tree Search to decide it's next move at a given state in the game tree.
+ * Carlo Tree Search (or another SearchEngine, if configured) to decide it's
+ * next move at a given state in the game tree.
  */
 public class KalahBot
 {
-    // The bot's player number (either 0 or 1).
+    // The bot's player number (either 0 or 1). It stays the same after a
+    // SWAP; the board is mirrored instead (see swapped).
     private int playerNumber;
 
+    // Whether a player has swapped. The game tree represents a SWAP by
+    // mirroring the board, so from then on every state the engine sends has
+    // to be mirrored too.
+    private boolean swapped;
+
+    // The bot's settings.
+    private final BotConfig config;
+
+    // Shares the match clock out between the moves of the current game.
+    private TimeManager timeManager;
+
+    // Holds the game tree, which is kept from move to move.
+    private final NodePool pool;
+
+    // Nodes the game tree needs when the engine keeps no tree of its own:
+    // the current state and its children, with room to spare.
+    private static final int STATES_ONLY_NODES = 64;
+
+    // The search the configuration asks for.
+    private final SearchEngine engine;
+
+    // The opening book, or null if the bot has none.
+    private OpeningBook book;
+
+    // Writes a line about every move, or null if telemetry is off.
+    private Telemetry telemetry;
+
+    // Number of moves the bot has made in the current game.
+    private int movesMade;
+
+    // The thread searching while the opponent thinks, or null if we are not
+    // pondering.
+    private Thread ponderThread;
+
+    // Set to stop pondering.
+    private final AtomicBoolean ponderStop = new AtomicBoolean();
+
     /**
      * Constructor for a KalahBot.
      *
@@ -14,8 +56,146 @@ public class KalahBot
      *            The bot's player number (either 0 or 1).
      */
     public KalahBot(int playerNumber)
+    {
+        this(playerNumber, BotConfig.fromSystemProperties());
+    }
+
+    /**
+     * Constructor for a KalahBot.
+     *
+     * @param playerNumber
+     *            The bot's player number (either 0 or 1).
+     * @param config
+     *            The bot's settings.
+     */
+    public KalahBot(int playerNumber, BotConfig config)
     {
         this.playerNumber = playerNumber;
+        this.config = config;
+        this.engine = createEngine(config);
+
+        boolean keepsTree = engine instanceof MonteCarloEngine;
+        this.pool = new NodePool(keepsTree ? config.getPoolNodes()
+                : STATES_ONLY_NODES);
+
+        if (config.getSeed() != null)
+            setSeed(config.getSeed());
+
+        if (config.getEndgameFile() != null)
+            useEndgameTable(config.getEndgameFile());
+
+        if (config.getBookFile() != null)
+            useOpeningBook(config.getBookFile());
+
+        if (config.getTelemetry() != null)
+        {
+            try
+            {
+                telemetry = Telemetry.open(config.getTelemetry());
+            }
+            catch (IOException e)
+            {
+                System.err.println("Not writing telemetry: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Method that creates the search engine a configuration asks for. The
+     * alpha-beta search gets the memory the game tree would have for its
+     * transposition table.
+     *
+     * @param config
+     *            The bot's settings.
+     *
+     * @return engine The engine.
+     */
+    private static SearchEngine createEngine(BotConfig config)
+    {
+        if (config.getEngineType() == EngineType.ALPHABETA)
+        {
+            long bytes = (long) config.getPoolNodes()
+                    * NodePool.BYTES_PER_NODE;
+            return new AlphaBetaSearch((int) Math.min(Integer.MAX_VALUE,
+                    bytes / AlphaBetaSearch.BYTES_PER_ENTRY));
+        }
+
+        MonteCarloEngine engine;
+        switch (config.getParallelMode())
+        {
+            case ROOT:
+                engine = new RootParallelSearch(config.getThreads(), Math.max(
+                        1, config.getPoolNodes() / config.getThreads()));
+                break;
+
+            case LEAF:
+                engine = new LeafParallelSearch(config.getThreads(), config
+                        .getLeafBatch());
+                break;
+
+            default:
+                engine = new SharedTreeSearch(config.getThreads(), config
+                        .getVirtualLoss());
+                break;
+        }
+
+        engine.setExploration(config.getExploration());
+        engine.setPlayoutPolicy(config.getPlayoutPolicy());
+        return engine;
+    }
+
+    /**
+     * Method that maps an opening book. The bot searches every move if the
+     * file can't be read.
+     *
+     * @param file
+     *            The path of the book file.
+     */
+    private void useOpeningBook(String file)
+    {
+        try
+        {
+            book = OpeningBook.open(file);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Not using opening book: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Method that maps an endgame table and hands it to the search. The bot
+     * plays on without one if the file can't be read.
+     *
+     * @param file
+     *            The path of the table file.
+     */
+    private void useEndgameTable(String file)
+    {
+        EndgameTable table;
+        try
+        {
+            table = EndgameTable.open(file);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Not using endgame table: " + e.getMessage());
+            return;
+        }
+
+        engine.setEndgameTable(table);
+    }
+
+    /**
+     * Method that restarts the search's random playouts from a seed, so that
+     * the moves that follow can be played again.
+     *
+     * @param seed
+     *            The seed.
+     */
+    void setSeed(long seed)
+    {
+        engine.setSeed(seed);
     }
 
     /**
@@ -25,97 +205,337 @@ public class KalahBot
     public void play()
     {
         // The next move that the bot will make.
-        Node<NodeData> moveToMake;
+        int moveToMake;
 
         // Boolean value that is set the false when the game has finished.
         // Determines when the bot should stop playing.
         boolean gameNotFinished = true;
 
         // Represents the current state that the game is in i.e. The current
-        // node we are at in the game tree.
-        Node<NodeData> currentNode = Utilities.initState(Utilities
-                .toggle(this.playerNumber));
+        // node we are at in the game tree. South always moves first.
+        int currentNode = startGame();
 
         // If we are player 2, wait for player 1 to move.
         if (playerNumber == 1)
         {
-            currentNode = waitForOpponent(null);
+            currentNode = waitForOpponent(currentNode);
         }
 
         // Play out the game.
         while (gameNotFinished)
         {
             // Choose the best move to make.
-            moveToMake = MonteCarloTreeSearch.mcts(currentNode);
+            moveToMake = chooseMove(currentNode);
 
             executeMove(moveToMake);
 
-            currentNode = waitForOpponent(moveToMake.getData().getState());
+            currentNode = waitForOpponent(currentNode);
 
             // End the game if we receive the end game message.
-            if (currentNode == null)
+            if (currentNode == NodePool.NONE)
                 gameNotFinished = false;
         }
     }
 
+    /**
+     * Method that gets the bot ready for a new game: the tree is cleared and
+     * the clock is reset.
+     *
+     * @return root The node of the starting position.
+     */
+    int startGame()
+    {
+        timeManager = new TimeManager(config.getClockMillis());
+        movesMade = 0;
+        pool.reset();
+        return pool.addRoot(Board.INITIAL, 0);
+    }
+
+    /**
+     * Method that chooses the move to make in a state: the book move if
+     * there is one, else the move found by the search. The time taken is
+     * charged to the bot's clock.
+     *
+     * @param currentNode
+     *            The state the bot has to move in.
+     *
+     * @return moveToMake The move chosen (1-7, or 0 for SWAP).
+     */
+    int chooseMove(int currentNode)
+    {
+        // Our clock is running from the moment we are asked to move.
+        long moveStart = System.nanoTime();
+
+        if (telemetry != null)
+            telemetry.searchStarted();
+
+        int moveToMake = bookMove(currentNode);
+        boolean fromBook = moveToMake != OpeningBook.NO_MOVE;
+        if (!fromBook)
+        {
+            SearchBudget budget = budgetForMove(currentNode);
+            moveToMake = search(currentNode, budget);
+        }
+
+        long elapsedNanos = System.nanoTime() - moveStart;
+        timeManager.moveFinished(elapsedNanos / 1000000L);
+
+        movesMade++;
+        if (telemetry != null)
+            recordTelemetry(currentNode, moveToMake, fromBook);
+
+        return moveToMake;
+    }
+
+    /**
+     * Method that writes the telemetry line for a move, with the statistics
+     * of the search that chose it.
+     *
+     * @param currentNode
+     *            The state the move was made in.
+     * @param move
+     *            The move made.
+     * @param fromBook
+     *            Whether the move came from the opening book.
+     */
+    private void recordTelemetry(int currentNode, int move, boolean fromBook)
+    {
+        long simulations = 0;
+        int maxDepth = 0;
+        double meanDepth = 0;
+
+        // Nothing was searched for a book move.
+        if (!fromBook)
+        {
+            simulations = engine.getNumSimulations();
+            maxDepth = engine.getMaxDepth();
+            meanDepth = engine.getMeanDepth();
+        }
+
+        telemetry.searchFinished(movesMade, move, fromBook, simulations, pool,
+                currentNode, maxDepth, meanDepth);
+    }
+
+    /**
+     * Method that works out how much searching the bot can afford for the next
+     * move: either the fixed budget from the configuration, or a share of the
+     * remaining match clock.
+     *
+     * @param currentNode
+     *            The state the bot has to move in.
+     *
+     * @return budget The budget for the search.
+     */
+    private SearchBudget budgetForMove(int currentNode)
+    {
+        if (config.hasFixedBudget())
+            return config.fixedBudget();
+
+        return timeManager.budgetForMove(pool.getBoard(currentNode));
+    }
+
+    /**
+     * Method that looks up the move for a state in the opening book.
+     *
+     * @param currentNode
+     *            The state the bot has to move in.
+     *
+     * @return move The book move, or NO_MOVE if the state is not in the book
+     *         (or the book gives a move that is not legal, which only a key
+     *         collision could cause).
+     */
+    private int bookMove(int currentNode)
+    {
+        if (book == null)
+            return OpeningBook.NO_MOVE;
+
+        Board board = pool.getBoard(currentNode);
+        int toMove = pool.getPlayerToMove(currentNode);
+        int move = book.getMove(board, toMove);
+
+        boolean legal = (move == 0) ? board.canSwap(toMove)
+                : move > 0 && (board.legalMoves(toMove) & (1 << move)) != 0;
+        return legal ? move : OpeningBook.NO_MOVE;
+    }
+
+    /**
+     * Method that runs the configured search.
+     *
+     * @param currentNode
+     *            The state the bot has to move in.
+     * @param budget
+     *            The budget for the search.
+     *
+     * @return moveToMake The move chosen.
+     */
+    private int search(int currentNode, SearchBudget budget)
+    {
+        return engine.search(pool, currentNode, budget);
+    }
+
     /**
      * Method that executes the bot's next move. Takes the move to execute as
      * input and returns a boolean stating whether the move was able to be
      * executed or not.
      *
      * @param move
-     *            The move to be executed.
+     *            The move to be executed (1-7, or 0 for SWAP).
      */
-    private void executeMove(Node<NodeData> move)
+    private void executeMove(int move)
     {
-        Interfacing.InterpretAndSend(move.getData().getPitNumber());
+        Interfacing.InterpretAndSend(move);
     }
 
     /**
-     * Method that waits for the opponent to make his/her/it's move. Returns the
-     * new state the game is in.
+     * Method that waits for the opponent to make his/her/it's move. Every move
+     * the engine reports (our own included, and any extra turns and SWAPs) is
+     * followed down the game tree from the given node, so the statistics the
+     * searches gathered below the new state are kept. The node reached
+     * becomes the root of the tree, and everything outside its subtree is
+     * dropped from the pool.
+     *
+     * @param node
+     *            The node of the state the game was in before.
      *
-     * @return newState The new state that the game is in.
+     * @return newState The new state that the game is in, or NONE if the game
+     *         has ended.
      */
-    private Node<NodeData> waitForOpponent(int[][] curState)
+    private int waitForOpponent(int node)
     {
-        Node<NodeData> n;
-
         // Will check if it's our turn again.
         Message m = Interfacing.getAndInterpret();
-        while (m.getCurrentPlayer() != 0)
+        while (m.getMessageType() != MessageType.END)
         {
+            if (m.getMessageType() == MessageType.SWAP)
+                swapped = true;
+
+            node = followMove(node, m);
+
+            if (m.getCurrentPlayer() == 0)
+                break;
+
+            // Keep growing the tree while the opponent thinks.
+            startPondering(node);
             m = Interfacing.getAndInterpret();
+            stopPondering();
         }
 
         if (m.getMessageType() == MessageType.END)
-	{
-            n = null;
-	}
-        else if (m.getMessageType() == MessageType.CHANGE)
-        {
-            curState = m.getCurState();
-            int player = Utilities.toggle(playerNumber);
-            NodeData data = new NodeData(curState, player);
-            n = new Node<NodeData>(data);
+            return NodePool.NONE;
 
-        } 
-	else
+        return node;
+    }
+
+    /**
+     * Method that starts searching the tree from a node on a background thread
+     * while the opponent is thinking, if pondering is turned on. The search
+     * runs until stopPondering() is called, or until it has added the
+     * configured number of nodes (for alpha-beta search, which adds no
+     * nodes, until it has searched that many positions).
+     *
+     * @param node
+     *            The state the opponent has to move in.
+     */
+    private void startPondering(final int node)
+    {
+        if (!config.isPondering())
+            return;
+
+        ponderStop.set(false);
+        SearchBudget limit = SearchBudget.untilStopped(ponderStop);
+        final SearchBudget budget = (engine instanceof MonteCarloEngine)
+                ? limit.withNodes(config.getPonderNodes())
+                : limit.withSimulations(config.getPonderNodes());
+
+        ponderThread = new Thread(new Runnable()
         {
-	    // Swap.
-            for (int i = 0; i < 8; i++)
+            public void run()
             {
-                int temp = curState[0][i];
-                curState[0][i] = curState[1][i];
-                curState[1][i] = temp;
+                search(node, budget);
             }
+        }, "ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    /**
+     * Method that stops pondering and waits for the search to finish, so the
+     * tree can be safely changed again.
+     */
+    private void stopPondering()
+    {
+        if (ponderThread == null)
+            return;
 
-            NodeData data = new NodeData(curState, playerNumber);
-            playerNumber = Utilities.toggle(playerNumber);
-            n = new Node<NodeData>(data);
+        ponderStop.set(true);
+        Utilities.join(ponderThread);
+        ponderThread = null;
+    }
+
+    /**
+     * Method that follows the move reported by the engine down the tree,
+     * with the engine's state mirrored if a player has swapped.
+     *
+     * @param node
+     *            The node the move was made from.
+     * @param m
+     *            The CHANGE or SWAP message from the engine.
+     *
+     * @return child The node for the state after the move, the root of the
+     *         tree.
+     */
+    private int followMove(int node, Message m)
+    {
+        Board reported = Board.fromArray(m.getCurState());
+        if (swapped)
+            reported = reported.swap();
+
+        int toMove = (m.getCurrentPlayer() == 0) ? playerNumber : Utilities
+                .toggle(playerNumber);
+
+        return followMove(node, m.getLastMove(), reported, toMove);
+    }
+
+    /**
+     * Method that moves from a node to the child for a move, and drops
+     * everything but the child's subtree from the pool. If the child's state
+     * is not the state given (which should not happen), a new tree is started
+     * from the state given.
+     *
+     * @param node
+     *            The node the move was made from.
+     * @param move
+     *            The move made (1-7, or 0 for SWAP).
+     * @param board
+     *            The position after the move, as the tree represents it.
+     * @param toMove
+     *            The player to move after the move.
+     *
+     * @return child The node for the state after the move, the root of the
+     *         tree.
+     */
+    int followMove(int node, int move, Board board, int toMove)
+    {
+        // A move that was never tried has nothing below it to keep, so
+        // first cut the pool down to the node and its subtree, which the
+        // child will join, to make room for it.
+        int child = pool.findChild(node, move);
+        if (child == NodePool.NONE)
+        {
+            node = pool.retain(node);
+            child = pool.addChild(node, move);
+        }
+
+        if (child == NodePool.NONE || !pool.getBoard(child).equals(board)
+                || pool.getPlayerToMove(child) != toMove)
+        {
+            System.err.println("Game tree out of step with the engine after "
+                    + "move " + move + ", starting a new tree");
+            pool.reset();
+            return pool.addRoot(board, toMove);
         }
 
-        return n;
+        return pool.retain(child);
     }
 
 }
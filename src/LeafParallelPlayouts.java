@@ -0,0 +1,188 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Class that runs a batch of playouts from one position on a pool of worker
+ * threads, for leaf parallelism: the tree itself is only touched by the
+ * searching thread, which hands each newly expanded leaf to the pool and
+ * backs up the summed result once. Every worker has its own Playout, and the
+ * tasks are created once and reused, so a batch costs a handful of
+ * allocations however many playouts it holds.
+ */
+public class LeafParallelPlayouts
+{
+    // Result of a batch cut short by an interrupt, which has no wins to
+    // count.
+    public static final int INTERRUPTED = -1;
+
+    // The worker threads.
+    private final ExecutorService pool;
+
+    // One reusable task per worker.
+    private final List<Batch> tasks;
+
+    // Number of playouts per batch.
+    private final int batchSize;
+
+    /**
+     * Constructor for a pool of playout workers.
+     *
+     * @param threads
+     *            The number of worker threads.
+     * @param batchSize
+     *            The number of playouts to run from every leaf.
+     */
+    public LeafParallelPlayouts(int threads, int batchSize)
+    {
+        if (threads < 1 || batchSize < 1)
+            throw new IllegalArgumentException(
+                    "threads and batch size must be at least 1");
+
+        // Never more workers than playouts to share out.
+        threads = Math.min(threads, batchSize);
+
+        this.batchSize = batchSize;
+        this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private int count = 0;
+
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "playout-" + count++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        this.tasks = new ArrayList<Batch>(threads);
+        for (int i = 0; i < threads; i++)
+        {
+            // Spread the playouts as evenly as possible.
+            int playouts = batchSize / threads
+                    + (i < batchSize % threads ? 1 : 0);
+            tasks.add(new Batch(new Playout(), playouts));
+        }
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Method that runs a batch of playouts from a position and counts how
+     * many of them a player won.
+     *
+     * @param board
+     *            The position to play from.
+     * @param toMove
+     *            The player to move in that position.
+     * @param player
+     *            The player whose wins are counted (ties count as a win for
+     *            South, as in a single simulation).
+     *
+     * @return wins The number of playouts the player won, or INTERRUPTED if
+     *         the thread was interrupted before the batch finished (with
+     *         the interrupt status set again), in which case the batch must
+     *         not be backed up.
+     */
+    public int run(Board board, int toMove, int player)
+    {
+        for (int i = 0; i < tasks.size(); i++)
+            tasks.get(i).set(board, toMove, player);
+
+        int wins = 0;
+        try
+        {
+            List<Future<Integer>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++)
+                wins += results.get(i).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return INTERRUPTED;
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("playout failed", e.getCause());
+        }
+
+        return wins;
+    }
+
+    // Sets how the playouts of every task choose their moves.
+    public void setPolicy(PlayoutPolicy policy)
+    {
+        for (int i = 0; i < tasks.size(); i++)
+            tasks.get(i).playout.setPolicy(policy);
+    }
+
+    /**
+     * Method that restarts the random playouts from a seed. Each task has a
+     * seed of its own derived from it, and always runs the same number of
+     * playouts, so the summed results do not depend on which worker runs
+     * which task.
+     *
+     * @param seed
+     *            The seed.
+     */
+    public void setSeed(long seed)
+    {
+        for (int i = 0; i < tasks.size(); i++)
+            tasks.get(i).playout.setSeed(seed + i);
+    }
+
+    // Stops the worker threads.
+    public void shutdown()
+    {
+        pool.shutdownNow();
+    }
+
+    /**
+     * A worker's share of a batch. The fields are set by the searching thread
+     * before the task is handed to the pool, which makes them visible to the
+     * worker.
+     */
+    private static class Batch implements Callable<Integer>
+    {
+        private final Playout playout;
+        private final int playouts;
+
+        private Board board;
+        private int toMove;
+        private int player;
+
+        Batch(Playout playout, int playouts)
+        {
+            this.playout = playout;
+            this.playouts = playouts;
+        }
+
+        void set(Board board, int toMove, int player)
+        {
+            this.board = board;
+            this.toMove = toMove;
+            this.player = player;
+        }
+
+        public Integer call()
+        {
+            int wins = 0;
+            for (int i = 0; i < playouts; i++)
+            {
+                boolean southWon = playout.run(board, toMove) >= 0;
+                if ((player == 0) == southWon)
+                    wins++;
+            }
+
+            return wins;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Class that runs Monte Carlo Tree Search with leaf parallelism: a single
+ * thread walks and grows the tree, and every leaf it expands gets a batch of
+ * playouts spread over a pool of worker threads (see LeafParallelPlayouts).
+ * The batch is backed up in one go, so the tree is walked once per batch
+ * rather than once per playout, and it is never shared between threads.
+ */
+public class LeafParallelSearch implements MonteCarloEngine
+{
+    // Default number of playouts per leaf for each worker thread.
+    public static final int DEFAULT_PLAYOUTS_PER_THREAD = 2;
+
+    // The workers running the playouts.
+    private final LeafParallelPlayouts playouts;
+
+    // The search walking the tree.
+    private final MonteCarloTreeSearch search;
+
+    /**
+     * Constructor for a leaf parallel search.
+     *
+     * @param threads
+     *            The number of worker threads running playouts.
+     * @param batchSize
+     *            The number of playouts to run from every leaf.
+     */
+    public LeafParallelSearch(int threads, int batchSize)
+    {
+        this.playouts = new LeafParallelPlayouts(threads, batchSize);
+        this.search = new MonteCarloTreeSearch(playouts);
+    }
+
+    // Gives the search the exact values of an endgame table.
+    public void setEndgameTable(EndgameTable endgameTable)
+    {
+        search.setEndgameTable(endgameTable);
+    }
+
+    // Sets the weight of the exploration term of the search.
+    public void setExploration(double exploration)
+    {
+        search.setExploration(exploration);
+    }
+
+    // Sets how the workers' playouts choose their moves.
+    public void setPlayoutPolicy(PlayoutPolicy policy)
+    {
+        search.setPlayoutPolicy(policy);
+    }
+
+    // Restarts the playouts of the workers from a seed.
+    public void setSeed(long seed)
+    {
+        search.setSeed(seed);
+    }
+
+    // Number of playouts done in the last search.
+    public long getNumSimulations()
+    {
+        return search.getNumSimulations();
+    }
+
+    // Depth below the root of the deepest selection of the last search.
+    public int getMaxDepth()
+    {
+        return search.getMaxDepth();
+    }
+
+    // Average depth below the root of the selections of the last search.
+    public double getMeanDepth()
+    {
+        int selections = search.getNumSelections();
+        return selections == 0 ? 0 : (double) search.getTotalDepth()
+                / selections;
+    }
+
+    /**
+     * Method that searches a position and returns the move with the most
+     * visits.
+     *
+     * @param pool
+     *            The pool holding the tree.
+     * @param root
+     *            The current state.
+     * @param budget
+     *            The budget for the search; every playout counts as one
+     *            simulation.
+     *
+     * @return theBestMove The next action to take (1-7, or 0 for SWAP).
+     */
+    public int search(NodePool pool, int root, SearchBudget budget)
+    {
+        return search.search(pool, root, budget);
+    }
+
+    // Stops the worker threads.
+    public void shutdown()
+    {
+        playouts.shutdown();
+    }
+}
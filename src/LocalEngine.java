@@ -0,0 +1,450 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tool that stands in for the game engine: it starts the bot as a child
+ * process, plays whole games against it over the bot's standard input and
+ * output with the engine's protocol, and checks that every move the bot makes
+ * is legal. The opponent plays random moves, or a script of moves first.
+ *
+ * The time the bot takes to answer is recorded for every move, from sending
+ * the message that gives the bot its turn to reading its move. The first move
+ * of a game is timed from the start of the process instead, so it includes
+ * the start-up of the JVM. Both are reported as histograms with their 50th
+ * and 99th percentiles and their maximum.
+ *
+ * Usage: java LocalEngine [-games n] [-seed s] [-swap p] [-script moves]
+ * [-timeout ms] bot command..., for example java LocalEngine -games 10 java
+ * -jar KalahBot.jar. The bot plays South in the even games and North in the
+ * odd ones. The opponent swaps with probability p (0.5 by default), and the
+ * script is a comma separated list of the opponent's first moves (SWAP or
+ * 1-7).
+ */
+public class LocalEngine
+{
+    // Who plays a side of the board.
+    private static final int BOT = 0;
+    private static final int OPPONENT = 1;
+
+    // The command starting the bot.
+    private final List<String> command;
+
+    // The opponent's random moves.
+    private final Random random;
+
+    // Probability that the opponent swaps when it can.
+    private final double swapProbability;
+
+    // The opponent's first moves, or an empty array.
+    private final int[] script;
+
+    // Longest the bot may take to answer before it is stopped.
+    private final long timeoutMillis;
+
+    // Stops a bot that takes too long.
+    private final Timer watchdog = new Timer("watchdog", true);
+
+    // Response times of the first moves and of all the others.
+    private final Latencies firstMoves = new Latencies();
+    private final Latencies otherMoves = new Latencies();
+
+    public LocalEngine(List<String> command, long seed,
+            double swapProbability, int[] script, long timeoutMillis)
+    {
+        this.command = command;
+        this.random = new Random(seed);
+        this.swapProbability = swapProbability;
+        this.script = script;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int games = 10;
+        long seed = 34120;
+        double swap = 0.5;
+        int[] script = new int[0];
+        long timeout = 60000;
+
+        int i = 0;
+        for (; i + 1 < args.length && args[i].startsWith("-"); i += 2)
+        {
+            String value = args[i + 1];
+            switch (args[i])
+            {
+                case "-games":
+                    games = Integer.parseInt(value);
+                    break;
+
+                case "-seed":
+                    seed = Long.parseLong(value);
+                    break;
+
+                case "-swap":
+                    swap = Double.parseDouble(value);
+                    break;
+
+                case "-script":
+                    script = parseScript(value);
+                    break;
+
+                case "-timeout":
+                    timeout = Long.parseLong(value);
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown option: "
+                            + args[i]);
+            }
+        }
+
+        if (i == args.length)
+        {
+            System.err.println("Usage: java LocalEngine [-games n] [-seed s] "
+                    + "[-swap p] [-script moves] [-timeout ms] "
+                    + "bot command...");
+            System.exit(1);
+        }
+
+        List<String> command = Arrays.asList(args).subList(i, args.length);
+        LocalEngine engine = new LocalEngine(command, seed, swap, script,
+                timeout);
+
+        int wins = 0;
+        int draws = 0;
+        int losses = 0;
+        int failures = 0;
+
+        for (int game = 0; game < games; game++)
+        {
+            int side = game % 2;
+            try
+            {
+                int difference = engine.playGame(side);
+                System.out.printf("Game %d: bot %s, %+d%n", game + 1,
+                        side == 0 ? "South" : "North", difference);
+
+                if (difference > 0)
+                    wins++;
+                else if (difference == 0)
+                    draws++;
+                else
+                    losses++;
+            }
+            catch (IOException | IllegalStateException e)
+            {
+                System.out.printf("Game %d: bot %s, failed: %s%n", game + 1,
+                        side == 0 ? "South" : "North", e.getMessage());
+                failures++;
+            }
+        }
+
+        System.out.printf("Bot: +%d =%d -%d, %d failed%n", wins, draws,
+                losses, failures);
+        engine.firstMoves.report("First move (from process start)");
+        engine.otherMoves.report("Other moves");
+    }
+
+    /**
+     * Method that plays one game against a new bot process.
+     *
+     * @param botSide
+     *            The side the bot starts on (0 for South, 1 for North).
+     *
+     * @return difference The bot's final score minus the opponent's.
+     *
+     * @throws IOException
+     *             If the bot can't be started, stops answering or breaks
+     *             the protocol.
+     * @throws IllegalStateException
+     *             If the bot makes an illegal move.
+     * @throws InterruptedException
+     *             If interrupted while waiting for the bot to exit.
+     */
+    public int playGame(int botSide) throws IOException,
+            InterruptedException
+    {
+        long start = System.nanoTime();
+        final Process bot = new ProcessBuilder(command).redirectError(
+                ProcessBuilder.Redirect.INHERIT).start();
+
+        try
+        {
+            Writer toBot = new OutputStreamWriter(bot.getOutputStream(),
+                    StandardCharsets.US_ASCII);
+            BufferedReader fromBot = new BufferedReader(new InputStreamReader(
+                    bot.getInputStream(), StandardCharsets.US_ASCII));
+
+            // Who plays each side; the players change sides after a SWAP.
+            int[] owner = new int[2];
+            owner[botSide] = BOT;
+            owner[botSide ^ 1] = OPPONENT;
+
+            send(toBot, "START;" + (botSide == 0 ? "South" : "North"));
+
+            Board board = Board.INITIAL;
+            int side = 0;
+            int opponentMoves = 0;
+            long asked = start;
+            boolean firstMove = true;
+
+            while (!board.isGameOver())
+            {
+                int move;
+                if (owner[side] == BOT)
+                {
+                    String answer = receive(bot, fromBot);
+                    long latency = System.nanoTime() - asked;
+                    (firstMove ? firstMoves : otherMoves).add(latency);
+                    firstMove = false;
+
+                    move = parseMove(answer);
+                }
+                else
+                {
+                    move = opponentMove(board, side, opponentMoves++);
+                }
+
+                if (!isLegal(board, side, move))
+                    throw new IllegalStateException((owner[side] == BOT ? "bot"
+                            : "opponent") + " made illegal move " + move
+                            + " in " + state(board));
+
+                if (move == 0)
+                {
+                    // The players change sides, and North moves again, now
+                    // played by the other player.
+                    owner[0] ^= 1;
+                    owner[1] ^= 1;
+                }
+                else
+                {
+                    int next = board.nextPlayer(side, move);
+                    board = board.move(side, move);
+                    side = next;
+                }
+
+                String turn = board.isGameOver() ? "END"
+                        : owner[side] == BOT ? "YOU" : "OPP";
+                send(toBot, "CHANGE;" + (move == 0 ? "SWAP" : move) + ";"
+                        + state(board) + ";" + turn);
+                asked = System.nanoTime();
+            }
+
+            toBot.close();
+            if (!bot.waitFor(timeoutMillis, TimeUnit.MILLISECONDS))
+                throw new IOException("bot did not exit after the game");
+
+            int botRow = owner[0] == BOT ? 0 : 1;
+            return board.finalScore(botRow) - board.finalScore(botRow ^ 1);
+        }
+        finally
+        {
+            bot.destroyForcibly();
+        }
+    }
+
+    /**
+     * Method that reads the bot's next message, stopping the bot if it takes
+     * longer than the timeout.
+     *
+     * @param bot
+     *            The bot process.
+     * @param fromBot
+     *            The bot's output.
+     *
+     * @return message The message, without the end of line.
+     *
+     * @throws IOException
+     *             If the bot has exited or was stopped.
+     */
+    private String receive(final Process bot, BufferedReader fromBot)
+            throws IOException
+    {
+        TimerTask stop = new TimerTask()
+        {
+            public void run()
+            {
+                bot.destroyForcibly();
+            }
+        };
+        watchdog.schedule(stop, timeoutMillis);
+
+        String message;
+        try
+        {
+            message = fromBot.readLine();
+        }
+        finally
+        {
+            stop.cancel();
+        }
+
+        if (message == null)
+            throw new IOException("bot exited or took longer than "
+                    + timeoutMillis + " ms to move");
+
+        return message;
+    }
+
+    private static void send(Writer toBot, String message) throws IOException
+    {
+        toBot.write(message + "\n");
+        toBot.flush();
+    }
+
+    // Reads the bot's MOVE;n or SWAP message.
+    private static int parseMove(String message) throws IOException
+    {
+        if (message.equals("SWAP"))
+            return 0;
+
+        try
+        {
+            if (message.startsWith("MOVE;"))
+                return Integer.parseInt(message.substring(5));
+        }
+        catch (NumberFormatException e)
+        {
+            // Reported below.
+        }
+
+        throw new IOException("bot sent \"" + message + "\"");
+    }
+
+    // The opponent's move: the next move of the script, else a random one.
+    private int opponentMove(Board board, int side, int opponentMoves)
+    {
+        if (opponentMoves < script.length)
+            return script[opponentMoves];
+
+        if (board.canSwap(side) && random.nextDouble() < swapProbability)
+            return 0;
+
+        int legal = board.legalMoves(side);
+        int choice = random.nextInt(Integer.bitCount(legal));
+        for (int i = 0; i < choice; i++)
+            legal &= legal - 1;
+
+        return Integer.numberOfTrailingZeros(legal);
+    }
+
+    private static boolean isLegal(Board board, int side, int move)
+    {
+        if (move == 0)
+            return board.canSwap(side);
+
+        return move >= 1 && move <= Board.PITS
+                && (board.legalMoves(side) & (1 << move)) != 0;
+    }
+
+    // The board in the format of the CHANGE message: North's pits and store,
+    // then South's.
+    private static String state(Board board)
+    {
+        StringBuilder state = new StringBuilder();
+        for (int player = 1; player >= 0; player--)
+        {
+            for (int pit = 1; pit <= Board.PITS; pit++)
+                state.append(board.get(player, pit)).append(',');
+
+            state.append(board.getStore(player));
+            if (player == 1)
+                state.append(',');
+        }
+
+        return state.toString();
+    }
+
+    // Reads a comma separated list of moves.
+    private static int[] parseScript(String moves)
+    {
+        String[] parts = moves.split(",");
+        int[] script = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            script[i] = parts[i].equalsIgnoreCase("SWAP") ? 0 : Integer
+                    .parseInt(parts[i].trim());
+
+        return script;
+    }
+
+    /**
+     * Class that collects response times and reports their distribution.
+     */
+    private static class Latencies
+    {
+        private final List<Long> nanos = new ArrayList<Long>();
+
+        void add(long latency)
+        {
+            nanos.add(latency);
+        }
+
+        /**
+         * Method that prints the percentiles of the times, and a histogram of
+         * them in buckets doubling in width from one millisecond.
+         *
+         * @param title
+         *            What the times are of.
+         */
+        void report(String title)
+        {
+            if (nanos.isEmpty())
+                return;
+
+            long[] sorted = new long[nanos.size()];
+            for (int i = 0; i < sorted.length; i++)
+                sorted[i] = nanos.get(i);
+            Arrays.sort(sorted);
+
+            System.out.printf("%s: %d moves, p50 %.1f ms, p99 %.1f ms, "
+                    + "max %.1f ms%n", title, sorted.length, millis(
+                    percentile(sorted, 0.50)), millis(percentile(sorted,
+                    0.99)), millis(sorted[sorted.length - 1]));
+
+            // Bucket b holds the times under 2^b ms (and at least 2^(b-1)).
+            int[] counts = new int[64];
+            int last = 0;
+            for (long latency : sorted)
+            {
+                long ms = latency / 1000000L;
+                int bucket = 64 - Long.numberOfLeadingZeros(ms);
+                counts[bucket]++;
+                last = Math.max(last, bucket);
+            }
+
+            for (int bucket = 0; bucket <= last; bucket++)
+            {
+                String range = bucket == 0 ? "      < 1" : String.format(
+                        "%4d-%-4d", 1L << (bucket - 1), 1L << bucket);
+                char[] bar = new char[(int) Math.ceil(50.0 * counts[bucket]
+                        / sorted.length)];
+                Arrays.fill(bar, '#');
+                System.out.printf("  %s ms %6d %s%n", range, counts[bucket],
+                        new String(bar));
+            }
+        }
+
+        private static long percentile(long[] sorted, double fraction)
+        {
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+
+        private static double millis(long nanos)
+        {
+            return nanos / 1e6;
+        }
+    }
+}
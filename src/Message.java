@@ -25,6 +25,16 @@ public class Message
         this.curState = curState;
     }
 
+    // Reuses the message for another message from the engine.
+    void set(MessageType type, int lastMove, int[][] curState,
+            int currentPlayer)
+    {
+        this.type = type;
+        this.lastMove = lastMove;
+        this.currentPlayer = currentPlayer;
+        this.curState = curState;
+    }
+
     // GETTER METHODS
 
     public MessageType getMessageType()
@@ -0,0 +1,12 @@
+/**
+ * Interface for the search engines running Monte Carlo Tree Search, with the
+ * settings only they have.
+ */
+public interface MonteCarloEngine extends SearchEngine
+{
+    // Sets the weight of the exploration term of UCT.
+    void setExploration(double exploration);
+
+    // Sets how the playouts choose their moves.
+    void setPlayoutPolicy(PlayoutPolicy policy);
+}
@@ -1,238 +1,700 @@
 import java.lang.Math;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Class that implements the parts that make up the Monte Carlo Tree Search
- * algorithm.
+ * algorithm. An instance holds the state of one search and is used by one
+ * thread at a time; RootParallelSearch runs several of them on separate
+ * trees, and SharedTreeSearch runs several of them on the same tree (the
+ * NodePool holding the tree is safe to share between threads).
+ *
+ * The search is also a solver (MCTS-Solver): the nodes whose result is known
+ * for certain (the end of the game, decided positions and positions in the
+ * endgame table) are given a proven value, which the backup passes up the
+ * tree. A node is a proven win for the player to move as soon as one of its
+ * children is, and its value is known once all its children are proven.
+ * Children proven to lose are never selected again, a move proven to win is
+ * played straight away, and the search stops once the root is proven.
  */
 public class MonteCarloTreeSearch
 {
     // Represents a counter for the number of simulations currently executed.
-    private static int numSimulations;
-    private static int startingPlayer;
+    private int numSimulations;
+    private int startingPlayer;
+
+    // Number of nodes added to the tree by the current search.
+    private int numNodes;
+
+    // Number of selections made by the current search, their total depth
+    // (edges below the root) and the deepest of them.
+    private int numSelections;
+    private long totalDepth;
+    private int maxDepth;
+
+    // The nodes selected by the current simulation, from the root down. A
+    // node can have several parents (see NodePool), so this is the way back
+    // up for the results.
+    private int[] path = new int[64];
+    private int pathLength;
+
+    // Budget used by mcts(root) when none is given.
+    private static final SearchBudget DEFAULT_BUDGET = SearchBudget
+            .ofSimulations(10000);
 
     private static final double C = 0.00001;
 
+    // Visit counts up to which UCT looks its square roots and logarithms up
+    // instead of working them out.
+    private static final int UCT_TABLE_SIZE = 1 << 16;
+
+    // sqrt(log(n + 1)) for the visits n of a parent, and 1 / sqrt(n + C) for
+    // the visits n of a child.
+    private static final double[] SQRT_LOG = new double[UCT_TABLE_SIZE];
+    private static final double[] INVERSE_SQRT = new double[UCT_TABLE_SIZE];
+
+    static
+    {
+        for (int n = 0; n < UCT_TABLE_SIZE; n++)
+        {
+            SQRT_LOG[n] = Math.sqrt(Math.log(n + 1));
+            INVERSE_SQRT[n] = 1 / Math.sqrt(n + C);
+        }
+    }
+
+    // Default weight of the exploration term of UCT.
+    public static final double DEFAULT_EXPLORATION = Math.sqrt(2.0);
+
+    // Weight of the exploration term of UCT.
+    private double exploration = DEFAULT_EXPLORATION;
+
+    // Plays out the simulations.
+    private final Playout playout;
+
+    // Number of losses a node is charged while a simulation through it is
+    // running, to steer other threads searching the same tree elsewhere.
+    private final int virtualLoss;
+
+    // Worker pool that runs a batch of playouts per leaf, or null to run a
+    // single playout on the searching thread.
+    private final LeafParallelPlayouts leafPlayouts;
+
+    // Exact values of endgame positions, or null if there are none.
+    private EndgameTable endgameTable;
+
+    public MonteCarloTreeSearch()
+    {
+        this(new Playout());
+    }
+
+    public MonteCarloTreeSearch(Playout playout)
+    {
+        this(playout, 0);
+    }
+
+    public MonteCarloTreeSearch(Playout playout, int virtualLoss)
+    {
+        this.playout = playout;
+        this.virtualLoss = virtualLoss;
+        this.leafPlayouts = null;
+    }
+
+    public MonteCarloTreeSearch(LeafParallelPlayouts leafPlayouts)
+    {
+        this.playout = null;
+        this.virtualLoss = 0;
+        this.leafPlayouts = leafPlayouts;
+    }
+
+    /**
+     * Method that executes the Monte Carlo Tree Search algorithm with the
+     * default budget of 10000 simulations.
+     *
+     * @param pool
+     *            The pool holding the tree.
+     * @param root
+     *            The current state.
+     *
+     * @return theBestMove The next action to take.
+     */
+    public static int mcts(NodePool pool, int root)
+    {
+        return mcts(pool, root, DEFAULT_BUDGET);
+    }
+
     /**
      * Method that executes the Monte Carlo Tree Search algorithm. Takes a node
-     * representing the current state and returns a node representing the next
-     * action to take.
+     * representing the current state and returns the next action to take. The
+     * search runs until the budget is used up, and then returns the best move
+     * found so far.
      *
+     * @param pool
+     *            The pool holding the tree.
      * @param root
      *            The current state.
+     * @param budget
+     *            How much time, how many simulations and how many nodes the
+     *            search may use.
      *
-     * @return theBestChild The next action to take.
+     * @return theBestMove The next action to take.
      */
-    public static Node<NodeData> mcts(Node<NodeData> root)
+    public static int mcts(NodePool pool, int root, SearchBudget budget)
     {
-        // System.out.println("Player root " + root.getData().getPlayer());
-        Node<NodeData> selectedNode;
-        boolean win;
+        return new MonteCarloTreeSearch().search(pool, root, budget);
+    }
 
-        // Initialize the simulation counter.
+    /**
+     * Method that executes the Monte Carlo Tree Search algorithm on several
+     * threads at once, each searching its own tree (see RootParallelSearch).
+     *
+     * @param pool
+     *            The pool holding the tree of the first thread.
+     * @param root
+     *            The current state.
+     * @param budget
+     *            How much time, how many simulations and how many nodes the
+     *            search may use in total.
+     * @param threads
+     *            The number of threads to search with.
+     *
+     * @return theBestMove The next action to take.
+     */
+    public static int mcts(NodePool pool, int root, SearchBudget budget,
+            int threads)
+    {
+        return new RootParallelSearch(threads).search(pool, root, budget);
+    }
+
+    /**
+     * Method that runs this search from a node until the budget is used up,
+     * or the thread is interrupted during a leaf parallel batch, and then
+     * returns the best move found so far.
+     *
+     * @param pool
+     *            The pool holding the tree.
+     * @param root
+     *            The current state.
+     * @param budget
+     *            How much time, how many simulations and how many nodes the
+     *            search may use.
+     *
+     * @return theBestMove The next action to take (1-7, or 0 for SWAP).
+     */
+    public int search(NodePool pool, int root, SearchBudget budget)
+    {
+        int selectedNode;
+        int simulations = (leafPlayouts == null) ? 1 : leafPlayouts
+                .getBatchSize();
+        int wins;
+
+        // Initialize the simulation and node counters.
         numSimulations = 0;
+        numNodes = 0;
+        numSelections = 0;
+        totalDepth = 0;
+        maxDepth = 0;
+        long deadline = budget.deadline(System.nanoTime());
 
         // Repeat the steps of the MCTS as long as we have
-        // not exceeded our computational budget.
-        while (numSimulations < 10000)
+        // not exceeded our computational budget and the root is not solved.
+        // Always do at least one simulation so that there is a child to
+        // return.
+        do
         {
-            // Select successive child nodes of root until
-            // we reach a candidate for expansion.
-            selectedNode = selectTreeRoute(root);
+            // Select successive child nodes of root, expanding the tree on
+            // the way, until we reach a node that has not been played out
+            // from yet.
+            selectedNode = selectTreeRoute(pool, root);
+
+            int depth = pathLength - 1;
+            numSelections++;
+            totalDepth += depth;
+            maxDepth = Math.max(maxDepth, depth);
 
-            // When we hit a node that can be expanded (non-terminal with
-            // unvisited children) we add that node to the game tree.
-            expand(selectedNode);
+            startingPlayer = pool.getPlayer(selectedNode);
 
-            startingPlayer = selectedNode.getData().getPlayer();
+            // Count the simulation as lost until its result is in.
+            addVirtualLoss(pool);
 
-            // Play out a simulation until completion.
-            win = simulate(selectedNode);
+            // Play out a simulation (or a batch of them) until completion.
+            wins = simulate(pool, selectedNode);
+
+            // A batch cut short by an interrupt has no result to back up,
+            // and the search has been asked to stop. (Leaf parallel search
+            // charges no virtual loss, so there is none to take back.)
+            if (wins == LeafParallelPlayouts.INTERRUPTED)
+                break;
 
             // Update nodes in tree with results of the simulation.
-            updateNodes(selectedNode, win);
+            updateNodes(pool, simulations, wins);
 
             // Decrement our computational budget counter.
-            numSimulations++;
-        }
+            numSimulations += simulations;
+        } while (!pool.isProven(root)
+                && !budget.isExhausted(deadline, numSimulations, numNodes));
 
-        return bestChild(root);
+        return bestMove(pool, root);
     }
 
     /**
      * Method that selects successive child nodes of a given node until it
-     * reaches a candidate for expansion. The node selected is returned.
+     * reaches a node to simulate from: a new node, a node whose children
+     * can't be added (because the pool is full, or another thread is adding
+     * them), or a node with a proven value. Nodes for the end of the game,
+     * for decided positions and for positions in the endgame table (the
+     * latter two below the root, which always needs children to choose from)
+     * are given their value on the way. A node gets its
+     * children the second time it is selected, the first being the
+     * simulation from the node itself. The nodes selected are recorded in
+     * path.
      *
+     * @param pool
+     *            The pool holding the tree.
      * @param n
      *            The provided current node.
      *
-     * @return candidate The node selected for expansion.
+     * @return selected The node selected.
      */
-    private static Node<NodeData> selectTreeRoute(Node<NodeData> n)
+    private int selectTreeRoute(NodePool pool, int n)
     {
-        boolean candidateNotFound = true;
+        pathLength = 0;
+        addToPath(n);
 
-        do
+        // Stop at the end of the game, as there is nothing left to select,
+        // and below the root where the winner is already known: a store
+        // holds a majority, or the endgame table has the result.
+        while (!pool.isTerminal(n) && !pool.isProven(n))
         {
+            if (pool.isGameOver(n) || (pathLength > 1 && (pool.isDecided(n)
+                    || endgameTable != null && endgameTable.covers(pool
+                            .getSouth(n), pool.getNorth(n)))))
+            {
+                pool.setTerminal(n);
+                pool.setProven(n, value(exactDifference(pool, n), pool
+                        .getPlayer(n)));
+                break;
+            }
+
+            // Try the moves with no child yet first, one child at a time.
+            int child = NodePool.NONE;
+            if (pool.getFirstChild(n) == NodePool.NONE
+                    || pool.getUntried(n) != 0)
+            {
+                child = pool.expand(n);
+
+                // A child first added under this node is new to the pool.
+                if (child != NodePool.NONE && pool.getParent(child) == n)
+                    numNodes++;
+            }
+
             // Iterate through all the child nodes of the current node and
             // choose the node that gives the highest value after applying UCT.
-            n = uct(n);
+            if (child == NodePool.NONE)
+                child = uct(pool, n);
+            if (child == NodePool.NONE)
+                break;
 
-            if (expansionCandidate(n))
-                candidateNotFound = false;
+            n = child;
+            addToPath(n);
 
-        } while (candidateNotFound && !n.getData().getTerminal());
+            if (pool.getVisits(n) == 0)
+                break;
+        }
 
         return n;
     }
 
+    private void addToPath(int node)
+    {
+        if (pathLength == path.length)
+            path = Arrays.copyOf(path, 2 * path.length);
+
+        path[pathLength++] = node;
+    }
+
     /**
-     * Method that expands the tree by adding a selected node to the tree.
+     * Method that charges a virtual loss to every node of the selected path
+     * below the root, which updateNodes() takes back again. Does nothing when
+     * searching alone.
      *
-     * @param n
-     *            The node to be added.
+     * @param pool
+     *            The pool holding the tree.
      */
-    private static void expand(Node<NodeData> n)
+    private void addVirtualLoss(NodePool pool)
     {
-        Node<NodeData> parent = n.getParent();
-        parent.addChild(n);
+        if (virtualLoss == 0)
+            return;
+
+        for (int i = 1; i < pathLength; i++)
+            pool.addVisits(path[i], virtualLoss);
     }
 
     /**
-     * Method that executes a simulation by selecting nodes from the given
-     * starting node until it reaches a terminating node.
+     * Method that executes a simulation by playing random moves from the given
+     * starting node until the game ends. With leaf parallelism a whole batch
+     * of simulations is played out on the worker pool instead. The result of
+     * a proven node is known, so every simulation from it has that result.
      *
+     * @param pool
+     *            The pool holding the tree.
      * @param n
      *            The node to begin simulation from.
      *
-     * @return result Whether this was a victory or not.
+     * @return wins How many of the simulations the player that made the move
+     *         into this node won, or LeafParallelPlayouts.INTERRUPTED if the
+     *         batch was cut short.
      */
-    private static boolean simulate(Node<NodeData> n)
+    private int simulate(NodePool pool, int n)
     {
-        // Check if the game has ended
-        if (!Utilities.hasGameEnded(n))
+        int player = pool.getPlayer(n);
+
+        int proven = pool.getProven(n);
+        if (proven != NodePool.UNPROVEN)
         {
-            Node<NodeData> newNode = executeRandomMove(n);
-            simulate(newNode);
+            int simulations = (leafPlayouts == null) ? 1 : leafPlayouts
+                    .getBatchSize();
+
+            // Draws count as a win for South, as in a playout.
+            boolean won = proven == NodePool.WIN
+                    || (proven == NodePool.DRAW && player == 0);
+            return won ? simulations : 0;
         }
 
-        return endGame(n);
+        if (leafPlayouts != null)
+            return leafPlayouts.run(pool.getBoard(n), pool.getPlayerToMove(n),
+                    player);
+
+        int difference = playout.run(pool.getSouth(n), pool.getNorth(n),
+                pool.getPlayerToMove(n));
+
+        // Ties count as a win for South.
+        boolean southWon = difference >= 0;
+        return (player == 0) == southWon ? 1 : 0;
+    }
+
+    /**
+     * Method that works out the final score difference from a terminal node:
+     * the end of the game, a position in the endgame table or a position
+     * where a store holds a majority.
+     *
+     * @param pool
+     *            The pool holding the tree.
+     * @param n
+     *            The terminal node.
+     *
+     * @return difference South's final score minus North's, or for a decided
+     *         position out of the table, South's store minus North's, which
+     *         has the same sign.
+     */
+    private int exactDifference(NodePool pool, int n)
+    {
+        Board board = pool.getBoard(n);
+        if (board.isGameOver())
+            return board.finalScore(0) - board.finalScore(1);
+
+        if (endgameTable != null
+                && endgameTable.covers(board.getSouth(), board.getNorth()))
+            return endgameTable.finalDifference(board, pool
+                    .getPlayerToMove(n));
+
+        return board.getStore(0) - board.getStore(1);
     }
 
     /**
-     * Method that updates nodes with the results of a simulation starting from
-     * a given child node, and working back up the tree until it reaches the
-     * root.
+     * Method that turns a final score difference into the proven value of a
+     * node.
      *
-     * @param node
-     *            The child node to start the update from.
-     * @param win
-     *            The result of the simulation.
+     * @param difference
+     *            South's final score minus North's (or any number of the
+     *            same sign).
+     * @param player
+     *            The player that moved into the node.
+     *
+     * @return value NodePool.WIN, LOSS or DRAW for that player.
      */
-    private static void updateNodes(Node<NodeData> node, boolean win)
+    private static int value(int difference, int player)
     {
-        Node<NodeData> currentNode = node;
+        if (difference == 0)
+            return NodePool.DRAW;
 
-        while (currentNode != null)
-        {
-            NodeData data = currentNode.getData();
-            data.setNumSimulations(data.getNumSimulations() + 1);
+        return (difference > 0) == (player == 0) ? NodePool.WIN
+                : NodePool.LOSS;
+    }
 
-            if (win && data.getPlayer() == startingPlayer)
+    /**
+     * Method that works out the value of a node from the proven values of its
+     * children, if they are enough: the player to move wins if any move
+     * wins, and otherwise gets the best of the values once all the moves are
+     * tried and proven.
+     *
+     * @param pool
+     *            The pool holding the tree.
+     * @param n
+     *            The node.
+     *
+     * @return proven Whether the node's value is now known.
+     */
+    private static boolean prove(NodePool pool, int n)
+    {
+        if (pool.isProven(n))
+            return true;
+
+        int first = pool.getFirstChild(n);
+        if (first == NodePool.NONE)
+            return false;
+
+        // The best value a move gives the player to move.
+        int best = NodePool.LOSS;
+        boolean complete = pool.getUntried(n) == 0;
+        int end = first + pool.getNumChildren(n);
+        for (int slot = first; slot < end; slot++)
+        {
+            int child = pool.getChild(slot);
+            if (child == NodePool.NONE)
             {
-                data.setNumWins(data.getNumWins() + 1);
-            } 
-	    else if (!win && data.getPlayer() != startingPlayer)
+                complete = false;
+                continue;
+            }
+
+            int value = pool.getProven(child);
+            if (value == NodePool.WIN)
             {
-                data.setNumWins(data.getNumWins() + 1);
+                best = value;
+                complete = true;
+                break;
             }
 
-            currentNode.setData(data);
-            currentNode = currentNode.getParent();
+            if (value == NodePool.UNPROVEN)
+                complete = false;
+            else
+                best = Math.max(best, value);
         }
 
+        if (!complete)
+            return false;
+
+        // The wrong way round, unless the player to move made the move into
+        // the node too (an extra turn).
+        if (pool.getPlayerToMove(n) != pool.getPlayer(n))
+            best = NodePool.WIN + NodePool.LOSS - best;
+
+        pool.setProven(n, best);
+        return true;
+    }
+    /**
+     * Method that updates nodes with the results of a batch of simulations
+     * starting from the last node of the selected path, and working back up
+     * the path until it reaches the root. Only the parents the simulation
+     * came through are updated, not every parent of a transposition. The
+     * virtual loss charged to the nodes below the root is taken back at the
+     * same time, and if the simulation came from a proven node, the nodes
+     * above it are proven as far as their children allow.
+     *
+     * @param pool
+     *            The pool holding the tree.
+     * @param simulations
+     *            The number of simulations played from the node.
+     * @param wins
+     *            How many of them the player that moved into the node won.
+     */
+    private void updateNodes(NodePool pool, int simulations, int wins)
+    {
+        boolean proving = pool.isProven(path[pathLength - 1]);
+
+        for (int i = pathLength - 1; i >= 0; i--)
+        {
+            int currentNode = path[i];
+
+            // Once a node can't be proven, neither can those above it.
+            if (proving && i < pathLength - 1)
+                proving = prove(pool, currentNode);
+
+            pool.addVisits(currentNode, (i == 0) ? simulations : simulations
+                    - virtualLoss);
+
+            // The simulations that player lost are wins for the other one.
+            if (pool.getPlayer(currentNode) == startingPlayer)
+            {
+                pool.addWins(currentNode, wins);
+            }
+            else
+            {
+                pool.addWins(currentNode, simulations - wins);
+            }
+        }
     }
 
     /**
      * Method that returns the next action to take in the decision tree. Takes a
-     * node and returns the best child based on the results of the stages of the
-     * MCTS algorithm.
+     * node and returns the move of its child with the highest number of
+     * simulations, unless a move is proven to win, which is returned at once.
+     * Moves proven to lose are only returned if every move is. Moves not
+     * tried are left out. If the node has no children (the pool was full),
+     * the first legal move is returned.
      *
+     * @param pool
+     *            The pool holding the tree.
      * @param parent
      *            The parent node that a child will be selected from.
      *
-     * @return child The child node selected.
+     * @return move The move selected (1-7, or 0 for SWAP).
      */
-    private static Node<NodeData> bestChild(Node<NodeData> parent)
+    static int bestMove(NodePool pool, int parent)
     {
-        Node<NodeData> child = null;
-        Node<NodeData> bestChild = null;
-        int max = 0;
-
-        // Get all children of this node.
-        List<Node<NodeData>> children = parent.getChildren();
+        int bestSlot = NodePool.NONE;
+        long max = 0;
 
         // Loop through the children of the parent and find the node with
         // the highest number of simulations.
-        for (int i = 0; i < children.size(); i++)
+        int first = pool.getFirstChild(parent);
+        int end = (first == NodePool.NONE) ? first : first
+                + pool.getNumChildren(parent);
+        for (int slot = first; slot < end; slot++)
         {
-            child = children.get(i);
+            int child = pool.getChild(slot);
+            if (child == NodePool.NONE)
+                continue;
+
+            int proven = pool.getProven(child);
+            if (proven == NodePool.WIN)
+                return pool.getMove(slot);
 
-            // Get the number of simulations of this child.
-            numSimulations = child.getData().getNumSimulations();
+            // Get the number of simulations of this child, ranking any move
+            // not proven to lose above those that are.
+            long childNumSimulations = pool.getVisits(child);
+            if (proven != NodePool.LOSS)
+                childNumSimulations += 1L << 32;
 
             // Best child.
-            if (numSimulations > max)
+            if (childNumSimulations > max)
             {
-                max = numSimulations;
-                bestChild = child;
+                max = childNumSimulations;
+                bestSlot = slot;
             }
         }
-	
-        return bestChild;
+
+        if (bestSlot != NodePool.NONE)
+            return pool.getMove(bestSlot);
+
+        int moves = pool.getBoard(parent).legalMoves(
+                pool.getPlayerToMove(parent));
+        return Integer.numberOfTrailingZeros(moves);
+    }
+
+    // Uses the exact values of an endgame table (or none, if null) for the
+    // positions it covers.
+    public void setEndgameTable(EndgameTable endgameTable)
+    {
+        this.endgameTable = endgameTable;
+    }
+
+    // Sets how the playouts choose their moves.
+    public void setPlayoutPolicy(PlayoutPolicy policy)
+    {
+        if (leafPlayouts != null)
+            leafPlayouts.setPolicy(policy);
+        else
+            playout.setPolicy(policy);
+    }
+
+    /**
+     * Method that restarts the random playouts from a seed. Given the same
+     * seed, position and simulation budget, a search on one thread makes the
+     * same simulations and so the same tree every time.
+     *
+     * @param seed
+     *            The seed.
+     */
+    public void setSeed(long seed)
+    {
+        if (leafPlayouts != null)
+            leafPlayouts.setSeed(seed);
+        else
+            playout.setSeed(seed);
+    }
+
+    // Sets the weight of the exploration term of UCT: higher values spread
+    // the simulations more evenly over the moves.
+    public void setExploration(double exploration)
+    {
+        this.exploration = exploration;
+    }
+
+    // Number of simulations done by the last call to search().
+    public int getNumSimulations()
+    {
+        return numSimulations;
+    }
+
+    // Number of selections made by the last call to search(), one per
+    // simulation unless a batch of playouts is run per leaf.
+    public int getNumSelections()
+    {
+        return numSelections;
+    }
+
+    // Total depth below the root of the selections of the last search.
+    public long getTotalDepth()
+    {
+        return totalDepth;
+    }
+
+    // Depth below the root of the deepest selection of the last search.
+    public int getMaxDepth()
+    {
+        return maxDepth;
     }
 
     /**
      * Method that applies the UCT algorithm to all the children of a given node
-     * and returns the node that gives the highest value for the UCT algorithm.
+     * and returns the node that gives the highest value for the UCT algorithm,
+     * leaving out the children proven to lose.
      *
+     * The value of a child is wins / (visits + C) plus the exploration term
+     * exploration * sqrt(log(parent visits + 1) / (visits + C)). The part
+     * depending on the parent is worked out once, and both square roots come
+     * from tables for all but the most visited nodes, so a child costs a few
+     * array reads and multiplications.
+     *
+     * @param pool
+     *            The pool holding the tree.
      * @param parent
      *            The provided node whose children will be tested.
      *
-     * @return child The child node selected.
+     * @return child The child node selected, or NONE if no child has been
+     *         added yet or every child is proven to lose.
      */
-    private static Node<NodeData> uct(Node<NodeData> parent)
+    private int uct(NodePool pool, int parent)
     {
-        Node<NodeData> child = null;
-        Node<NodeData> maxChild = null;
+        int maxChild = NodePool.NONE;
 
         double max = -1;
         double current = -1;
 
-        // Get the valid moves that we can make from this Node.
-        List<Node<NodeData>> validMoves = Utilities.getValidMoves(parent);
+        // The exploration term without the child's part.
+        double parentTerm = exploration * sqrtLog(pool.getVisits(parent));
 
-        // Hacky fix for terminal nodes.
-        if (validMoves.size() == 0)
-        {
-            parent.getParent().getData().setTerminal(true);
-            return parent.getParent();
-        }
+        // The child slots sit next to each other in the pool. There are
+        // none yet if another thread is still setting them aside.
+        int first = pool.getFirstChild(parent);
+        if (first == NodePool.NONE)
+            return NodePool.NONE;
+
+        int end = first + pool.getNumChildren(parent);
 
         // Apply the UCT algorithm to all available valid moves.
-        for (int i = 0; i < validMoves.size(); i++)
+        for (int slot = first; slot < end; slot++)
         {
-            // Get a single valid move from all possible valid moves.
-            child = validMoves.get(i);
+            int child = pool.getChild(slot);
+
+            // Only choose between the moves tried, never one proven to lose.
+            if (child == NodePool.NONE
+                    || pool.getProven(child) == NodePool.LOSS)
+                continue;
 
             // UCT algorithm.
-	    int childNumWins        = child.getData().getNumWins();
-	    int childNumSimulations = child.getData().getNumSimulations();
-	    
-            current = ( childNumWins / (childNumSimulations + C) ) + 
-		      ( Math.sqrt(2.0) * 
-		       (Math.sqrt(Math.log(numSimulations + 1) / 
-		       (childNumSimulations + C))) );
+            double inverseSqrt = inverseSqrt(pool.getVisits(child));
+            current = pool.getWins(child) * inverseSqrt * inverseSqrt
+                    + parentTerm * inverseSqrt;
 
             // A new best child has been found if the value for UCT is greater
             // than our current max.
@@ -246,85 +708,21 @@ public class MonteCarloTreeSearch
         return maxChild;
     }
 
-    /**
-     * Method that determines if a given node is a candidate for expansion in
-     * the Monte Carlo Tree Search.
-     *
-     * @param n
-     *            The provided node to be examined.
-     *
-     * @return expansionCandidate Whether the node is a candidate or not.
-     */
-    private static boolean expansionCandidate(Node<NodeData> n)
+    // sqrt(log(visits + 1)), from the table if it is there.
+    private static double sqrtLog(int visits)
     {
-        // Check if node is in tree. This is done by checking if the parent 
-	// node is aware that this node is it's child.
-        Node<NodeData> parent = n.getParent();
+        if (visits < UCT_TABLE_SIZE)
+            return SQRT_LOG[visits];
 
-        return !parent.isChild(n);
+        return Math.sqrt(Math.log(visits + 1));
     }
 
-    // Simple function to return if the bot won or not
-    private static boolean endGame(Node<NodeData> n)
+    // 1 / sqrt(visits + C), from the table if it is there.
+    private static double inverseSqrt(int visits)
     {
-        boolean win;
-
-        // Get the current state.
-        int player = n.getData().getPlayer();
-        int[][] curState = n.getData().getState();
+        if (visits < UCT_TABLE_SIZE)
+            return INVERSE_SQRT[visits];
 
-        // Create variables to store the score tally's.
-        int northScore = curState[1][0];
-        int southScore = curState[0][0];
-
-        for (int i = 1; i < 8; i++)
-        {
-            northScore += curState[1][i];
-            southScore += curState[0][i];
-        }
-
-        if (northScore > southScore)
-        {
-            win = (player == 0) ? false : true;
-        } 
-	else
-        {
-            win = (player == 0) ? true : false;
-        }
-
-        return win;
-    }
-
-    /**
-     * @param n
-     *            Use this node to find all valid moves Method that gets valid
-     *            moves(returns list of nodes) These nodes all have updated
-     *            states Get one of these nodes and pass it as next state for
-     *            simulation
-     * @return returns a valid move for simulate to use
-     */
-    private static Node<NodeData> executeRandomMove(Node<NodeData> n)
-    {
-        List<Node<NodeData>> validMoves = Utilities.getValidMoves(n);
-
-        // Check if there were no valid moves (i.e the game ended).
-        // Return the provided node in this case and the recursion will handle
-        // termination.
-        if (validMoves.isEmpty())
-        {
-            int player = n.getData().getPlayer();
-            n.getData().setPlayer(Utilities.toggle(player));
-            return n;
-        }
-
-        int moveToExecute = getRandomMove(validMoves.size() - 1);
-        return validMoves.get(moveToExecute);
+        return 1 / Math.sqrt(visits + C);
     }
-
-    // Simple function to get a value between 0 and n
-    private static int getRandomMove(int validMoves)
-    {
-        return (int) Math.round(Math.random() * (validMoves));
-    }
-
 }
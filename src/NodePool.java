@@ -0,0 +1,705 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that holds a game tree in a preallocated arena of parallel primitive
+ * arrays instead of a graph of objects. A node is an int id indexing the
+ * arrays, which hold its packed position (see Board) and Zobrist key, the
+ * node it was first added under, its child slots, its statistics and a few
+ * flags.
+ *
+ * The children of a node are a block of slots in a second set of arrays, a
+ * slot for every legal move (SWAP first, then the pits in order) holding the
+ * move and the id of its child, so selection scans them in one sweep. They
+ * are added lazily: the first expansion of a node sets its block aside, with
+ * no children in it, and a bitmask of the moves not tried yet; each expansion
+ * then adds the child of one untried move and clears its bit, until the
+ * mask is empty. So a leaf the search visits once costs one node, not one
+ * for every move.
+ *
+ * The same position is often reached by different orders of moves, so the
+ * tree is really a directed acyclic graph: a child is looked up in a
+ * TranspositionTable and only created if the position is not in the pool
+ * already. A node can have several parents, which is why the search backs
+ * results up along the path it selected rather than by following parent
+ * links.
+ *
+ * Nodes are never freed one at a time. reset() empties the whole pool, and
+ * retain() keeps just the nodes reachable from one node, moving them to the
+ * front of the arrays, so the tree can be carried over to the next move.
+ *
+ * Statistics are updated atomically and expansion is lock free, so several
+ * threads can search the same pool at once; reset() and retain() must only be
+ * called while nobody is searching it.
+ */
+public class NodePool
+{
+    // Id meaning no node.
+    public static final int NONE = -1;
+
+    // Value of firstChild while a thread is setting a node's slots aside.
+    private static final int EXPANDING = -2;
+
+    // Game-theoretic values of a node, for the player that moved into it,
+    // ordered from worst to best: not proven yet, a proven loss, draw or win.
+    public static final int UNPROVEN = 0;
+    public static final int LOSS = 1;
+    public static final int DRAW = 2;
+    public static final int WIN = 3;
+
+    // Most slots a node can take: one per move (SWAP and the seven pits)
+    // and a header.
+    private static final int SLOTS_PER_NODE = Board.PITS + 2;
+
+    // Heap used per node by the arrays below, counting the share of child
+    // slots and of the transposition table that goes with each node: 43
+    // bytes of node arrays, 5 for each of its slots and up to 6 of the
+    // table.
+    public static final int BYTES_PER_NODE = 43 + 5 * SLOTS_PER_NODE + 6;
+
+    // Largest pool that defaultCapacity() hands out.
+    private static final int MAX_DEFAULT_CAPACITY = 1 << 24;
+
+    // Bits of flags: the player who made the move into the node, whether
+    // that player moves again, whether the game is over (or decided) and the
+    // node's proven value.
+    private static final int PLAYER = 1;
+    private static final int MOVE_AGAIN = 2;
+    private static final int TERMINAL = 4;
+    private static final int PROVEN_SHIFT = 3;
+    private static final int PROVEN = 3 << PROVEN_SHIFT;
+
+    // Atomic and ordered access to the elements of the int arrays.
+    private static final VarHandle INTS = MethodHandles
+            .arrayElementVarHandle(int[].class);
+
+    // Likewise for the byte arrays.
+    private static final VarHandle BYTES = MethodHandles
+            .arrayElementVarHandle(byte[].class);
+
+    private final int capacity;
+
+    // The position, packed as in Board, and its Zobrist key (which covers
+    // the player to move and whether it is an extra turn).
+    private final long[] south;
+    private final long[] north;
+    private final long[] hash;
+
+    // The node the node was first added under, or NONE for a root.
+    private final int[] parent;
+
+    // The first of the node's child slots, or NONE if the node has not been
+    // expanded.
+    private final int[] firstChild;
+    private final byte[] numChildren;
+
+    // The moves of the node with no child yet, a bit per move (bit 0 for
+    // SWAP). Only bits of moves with a slot are ever set.
+    private final byte[] untried;
+
+    private final byte[] flags;
+
+    // Simulations through the node, and how many of them the player that
+    // moved into the node won.
+    private final int[] visits;
+    private final int[] wins;
+
+    // The child slots, holding NONE for a move not tried yet. Each node's
+    // block starts with a header slot holding the node's id and its number
+    // of slots, so retain() can walk the blocks in order.
+    private final int slotCapacity;
+    private final int[] slotNode;
+    private final byte[] slotMove;
+
+    // Finds the nodes already in the pool for a position.
+    private final TranspositionTable table;
+
+    // Number of node ids and slots handed out, by claim(), which never takes
+    // them past the capacity.
+    private final AtomicInteger nextNode = new AtomicInteger();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+
+    // Scratch space for retain(): a bit per node to keep, and the number of
+    // kept nodes before each word of bits.
+    private final long[] keep;
+    private final int[] keptBefore;
+
+    /**
+     * Constructor for a node pool.
+     *
+     * @param capacity
+     *            The most nodes the pool can hold.
+     */
+    public NodePool(int capacity)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+
+        this.capacity = capacity;
+        south = new long[capacity];
+        north = new long[capacity];
+        hash = new long[capacity];
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        numChildren = new byte[capacity];
+        untried = new byte[capacity];
+        flags = new byte[capacity];
+        visits = new int[capacity];
+        wins = new int[capacity];
+
+        // A node's first expansion sets aside a slot for each of its moves
+        // at once, so there is room for every node to be expanded: the
+        // slots never run out before the nodes do (short of pools too big
+        // for the slots to fit in an array).
+        slotCapacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) capacity
+                * SLOTS_PER_NODE);
+        slotNode = new int[slotCapacity];
+        slotMove = new byte[slotCapacity];
+
+        table = new TranspositionTable(capacity / 2);
+
+        keep = new long[(capacity + 63) >>> 6];
+        keptBefore = new int[keep.length];
+    }
+
+    /**
+     * Method that works out a pool size that fits comfortably in the heap:
+     * a quarter of the maximum heap size, up to 16M nodes.
+     *
+     * @return capacity The number of nodes.
+     */
+    public static int defaultCapacity()
+    {
+        long nodes = Runtime.getRuntime().maxMemory() / 4 / BYTES_PER_NODE;
+        return (int) Math.max(1, Math.min(MAX_DEFAULT_CAPACITY, nodes));
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    // Number of nodes in the pool.
+    public int size()
+    {
+        return nextNode.get();
+    }
+
+    private int slotsUsed()
+    {
+        return nextSlot.get();
+    }
+
+    // Hands out the next n ids (or slots) of a counter, returning the first,
+    // or NONE if fewer than n are left below the limit. A full pool is
+    // asked for nodes over and over, so the counter must not count those
+    // failures.
+    private static int claim(AtomicInteger counter, int n, int limit)
+    {
+        while (true)
+        {
+            int next = counter.get();
+            if (next > limit - n)
+                return NONE;
+
+            if (counter.compareAndSet(next, next + n))
+                return next;
+        }
+    }
+
+    // Empties the pool.
+    public void reset()
+    {
+        nextNode.set(0);
+        nextSlot.set(0);
+        table.clear();
+    }
+
+    /**
+     * Method that adds a node with no parent to the pool, to be the root of a
+     * new tree.
+     *
+     * @param board
+     *            The position.
+     * @param toMove
+     *            The player to move in the position.
+     *
+     * @return root The id of the node, or NONE if the pool is full.
+     */
+    public int addRoot(Board board, int toMove)
+    {
+        int id = claim(nextNode, 1, capacity);
+        if (id == NONE)
+            return NONE;
+
+        init(id, NONE, board, Zobrist.hash(board, toMove, false), toMove ^ 1,
+                false);
+        table.put(hash[id], id, this);
+        return id;
+    }
+
+    /**
+     * Method that expands a node by adding the child of its first untried
+     * move, linking to the node already in the pool for the position where
+     * there is one. The node's slots are set aside on its first expansion.
+     * Does nothing if every move has been tried (or another thread is trying
+     * the move), if the game is over or if there is no room left in the
+     * pool.
+     *
+     * @param node
+     *            The node to expand.
+     *
+     * @return child The child added, or NONE if the node was not expanded.
+     */
+    public int expand(int node)
+    {
+        if (reserveSlots(node) == NONE)
+            return NONE;
+
+        int moves = getUntried(node);
+        if (moves == 0)
+            return NONE;
+
+        return addChild(node, Integer.numberOfTrailingZeros(moves));
+    }
+
+    /**
+     * Method that finds the child of a node for a given move, adding it if
+     * the move has not been tried yet.
+     *
+     * @param node
+     *            The node.
+     * @param pit
+     *            The move (1-7, or 0 for SWAP).
+     *
+     * @return child The child, or NONE if the move is not legal, another
+     *         thread is adding the child or there is no room left in the
+     *         pool.
+     */
+    public int addChild(int node, int pit)
+    {
+        int first = reserveSlots(node);
+        if (first == NONE)
+            return NONE;
+
+        int slot = first;
+        int end = first + numChildren[node];
+        while (slot < end && slotMove[slot] != pit)
+            slot++;
+
+        if (slot == end)
+            return NONE;
+
+        // Claim the move, unless it has a child already or another thread
+        // is adding it.
+        int bit = 1 << pit;
+        int moves;
+        do
+        {
+            moves = getUntried(node);
+            if ((moves & bit) == 0)
+                return getChild(slot);
+        }
+        while (!BYTES.compareAndSet(untried, node, (byte) moves,
+                (byte) (moves & ~bit)));
+
+        Board board = getBoard(node);
+        int player = getPlayerToMove(node);
+        Board next = board.move(player, pit);
+        boolean moveAgain = board.nextPlayer(player, pit) == player;
+        long key = Zobrist.update(hash[node], board, Zobrist.turn(player,
+                getPlayerMoveAgain(node)), next, Zobrist.turn(moveAgain
+                ? player : player ^ 1, moveAgain));
+
+        int child = find(key, next, player, moveAgain);
+        if (child == NONE)
+        {
+            child = claim(nextNode, 1, capacity);
+            if (child == NONE)
+            {
+                // Leave the move to be tried again once there is room.
+                BYTES.getAndBitwiseOr(untried, node, (byte) bit);
+                return NONE;
+            }
+
+            init(child, node, next, key, player, moveAgain);
+            table.put(key, child, this);
+        }
+
+        // Publish the child only once it is filled in.
+        INTS.setRelease(slotNode, slot, child);
+        return child;
+    }
+
+    /**
+     * Method that sets aside a slot for every legal move of a node, with no
+     * children in them yet, unless that has been done already.
+     *
+     * @param node
+     *            The node.
+     *
+     * @return first The first of the node's slots, or NONE if the game is
+     *         over, another thread is setting them aside or there is no room
+     *         left in the pool.
+     */
+    private int reserveSlots(int node)
+    {
+        int first = (int) INTS.getAcquire(firstChild, node);
+        if (first != NONE)
+            return first < 0 ? NONE : first;
+
+        Board board = getBoard(node);
+        int player = getPlayerToMove(node);
+        int moves = board.legalMoves(player) | (board.canSwap(player) ? 1
+                : 0);
+        int count = Integer.bitCount(moves);
+
+        if (count == 0 || nextNode.get() >= capacity)
+            return NONE;
+
+        if (!INTS.compareAndSet(firstChild, node, NONE, EXPANDING))
+            return NONE;
+
+        int header = claim(nextSlot, count + 1, slotCapacity);
+        if (header == NONE)
+        {
+            INTS.setRelease(firstChild, node, NONE);
+            return NONE;
+        }
+
+        int slot = header + 1;
+        for (int rest = moves; rest != 0; rest &= rest - 1)
+        {
+            slotNode[slot] = NONE;
+            slotMove[slot] = (byte) Integer.numberOfTrailingZeros(rest);
+            slot++;
+        }
+
+        // Publish the slots only once they are all filled in.
+        slotNode[header] = node;
+        slotMove[header] = (byte) count;
+        numChildren[node] = (byte) count;
+        untried[node] = (byte) moves;
+        INTS.setRelease(firstChild, node, header + 1);
+        return header + 1;
+    }
+
+    // The node already in the pool for a position, or NONE.
+    private int find(long key, Board board, int player, boolean moveAgain)
+    {
+        int node = table.get(key);
+        if (node == NONE || south[node] != board.getSouth()
+                || north[node] != board.getNorth()
+                || (flags[node] & (PLAYER | MOVE_AGAIN)) != turnFlags(player,
+                        moveAgain))
+            return NONE;
+
+        return node;
+    }
+
+    private void init(int id, int parentId, Board board, long key,
+            int player, boolean moveAgain)
+    {
+        south[id] = board.getSouth();
+        north[id] = board.getNorth();
+        hash[id] = key;
+        parent[id] = parentId;
+        firstChild[id] = NONE;
+        numChildren[id] = 0;
+        untried[id] = 0;
+        flags[id] = (byte) turnFlags(player, moveAgain);
+        visits[id] = 0;
+        wins[id] = 0;
+    }
+
+    private static int turnFlags(int player, boolean moveAgain)
+    {
+        return player | (moveAgain ? MOVE_AGAIN : 0);
+    }
+
+    /**
+     * Method that finds the child of a node for a given move.
+     *
+     * @param node
+     *            The node.
+     * @param pit
+     *            The move (1-7, or 0 for SWAP).
+     *
+     * @return child The child, or NONE if the node has not been expanded,
+     *         the move has not been tried or the move is not legal.
+     */
+    public int findChild(int node, int pit)
+    {
+        int first = getFirstChild(node);
+        if (first == NONE)
+            return NONE;
+
+        int end = first + numChildren[node];
+        for (int slot = first; slot < end; slot++)
+        {
+            if (slotMove[slot] == pit)
+                return getChild(slot);
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Method that throws away everything but the nodes reachable from a
+     * given node. The nodes kept are moved to the front of the pool, in the
+     * same order, and so are their child slots.
+     *
+     * @param root
+     *            The node to keep, with everything below it.
+     *
+     * @return root The new id of the node.
+     */
+    public int retain(int root)
+    {
+        int end = size();
+        int slotEnd = slotsUsed();
+        Arrays.fill(keep, 0);
+
+        // Children nearly always come after their parent, so a pass in id
+        // order marks most of what is reachable; a transposition back to an
+        // older node needs another pass.
+        keep[root >>> 6] |= 1L << root;
+        boolean again = true;
+        while (again)
+        {
+            again = false;
+            for (int n = 0; n < end; n++)
+            {
+                if (!isKept(n) || firstChild[n] < 0)
+                    continue;
+
+                int last = firstChild[n] + numChildren[n];
+                for (int slot = firstChild[n]; slot < last; slot++)
+                {
+                    int child = slotNode[slot];
+                    if (child != NONE && !isKept(child))
+                    {
+                        keep[child >>> 6] |= 1L << child;
+                        again |= child < n;
+                    }
+                }
+            }
+        }
+
+        int kept = 0;
+        for (int w = 0; w < keep.length; w++)
+        {
+            keptBefore[w] = kept;
+            kept += Long.bitCount(keep[w]);
+        }
+
+        // Move the slot blocks of the kept nodes down, pointing the nodes at
+        // their new slots. Blocks never move to a higher index, so they can
+        // be copied in place.
+        int slotsKept = 0;
+        int header = 0;
+        while (header < slotEnd)
+        {
+            int owner = slotNode[header];
+            int length = slotMove[header] + 1;
+
+            if (isKept(owner))
+            {
+                System.arraycopy(slotNode, header, slotNode, slotsKept, length);
+                System.arraycopy(slotMove, header, slotMove, slotsKept, length);
+                firstChild[owner] = slotsKept + 1;
+                slotsKept += length;
+            }
+
+            header += length;
+        }
+
+        // Likewise for the nodes themselves.
+        table.clear();
+        for (int n = 0; n < end; n++)
+        {
+            if (!isKept(n))
+                continue;
+
+            int id = newId(n);
+            int p = parent[n];
+            south[id] = south[n];
+            north[id] = north[n];
+            hash[id] = hash[n];
+            parent[id] = (p != NONE && isKept(p)) ? newId(p) : NONE;
+            firstChild[id] = firstChild[n];
+            numChildren[id] = numChildren[n];
+            untried[id] = untried[n];
+            flags[id] = flags[n];
+            visits[id] = visits[n];
+            wins[id] = wins[n];
+            table.put(hash[id], id, this);
+        }
+
+        // Renumber the nodes the slots refer to.
+        for (int slot = 0; slot < slotsKept; slot++)
+        {
+            if (slotNode[slot] != NONE)
+                slotNode[slot] = newId(slotNode[slot]);
+        }
+
+        nextNode.set(kept);
+        nextSlot.set(slotsKept);
+        return newId(root);
+    }
+
+    private boolean isKept(int node)
+    {
+        return (keep[node >>> 6] & (1L << node)) != 0;
+    }
+
+    // The id a kept node gets from retain(): the number of kept nodes before
+    // it.
+    private int newId(int node)
+    {
+        long below = keep[node >>> 6] & ((1L << node) - 1);
+        return keptBefore[node >>> 6] + Long.bitCount(below);
+    }
+
+    public Board getBoard(int node)
+    {
+        return new Board(south[node], north[node]);
+    }
+
+    public long getSouth(int node)
+    {
+        return south[node];
+    }
+
+    public long getNorth(int node)
+    {
+        return north[node];
+    }
+
+    public long getHash(int node)
+    {
+        return hash[node];
+    }
+
+    // Whether either player has run out of stones to move.
+    public boolean isGameOver(int node)
+    {
+        return (south[node] & ~0xFFL) == 0 || (north[node] & ~0xFFL) == 0;
+    }
+
+    // Whether either store holds a majority of the stones (see Board).
+    public boolean isDecided(int node)
+    {
+        return Board.isDecided(south[node], north[node]);
+    }
+
+    // The node this node was first added under (it may have other parents),
+    // or NONE.
+    public int getParent(int node)
+    {
+        return parent[node];
+    }
+
+    // The first of the node's child slots, or NONE if the node has not been
+    // expanded. The node's slots follow on from it.
+    public int getFirstChild(int node)
+    {
+        int first = (int) INTS.getAcquire(firstChild, node);
+        return first < 0 ? NONE : first;
+    }
+
+    // Number of the node's child slots: its legal moves, tried or not.
+    public int getNumChildren(int node)
+    {
+        return numChildren[node];
+    }
+
+    // The moves of an expanded node that have no child yet, a bit per move
+    // (bit 0 for SWAP).
+    public int getUntried(int node)
+    {
+        return (byte) BYTES.getAcquire(untried, node) & 0xFF;
+    }
+
+    // The child in a slot, or NONE if its move has not been tried yet.
+    public int getChild(int slot)
+    {
+        return (int) INTS.getAcquire(slotNode, slot);
+    }
+
+    // The move leading to the child in a slot (1-7, or 0 for SWAP).
+    public int getMove(int slot)
+    {
+        return slotMove[slot];
+    }
+
+    // The player that made the move into the node.
+    public int getPlayer(int node)
+    {
+        return flags[node] & PLAYER;
+    }
+
+    public boolean getPlayerMoveAgain(int node)
+    {
+        return (flags[node] & MOVE_AGAIN) != 0;
+    }
+
+    public int getPlayerToMove(int node)
+    {
+        int player = getPlayer(node);
+        return getPlayerMoveAgain(node) ? player : player ^ 1;
+    }
+
+    public boolean isTerminal(int node)
+    {
+        return (flags[node] & TERMINAL) != 0;
+    }
+
+    public void setTerminal(int node)
+    {
+        flags[node] |= TERMINAL;
+    }
+
+    // The node's proven value (UNPROVEN, LOSS, DRAW or WIN) for the player
+    // that moved into it.
+    public int getProven(int node)
+    {
+        return (flags[node] & PROVEN) >>> PROVEN_SHIFT;
+    }
+
+    public boolean isProven(int node)
+    {
+        return (flags[node] & PROVEN) != 0;
+    }
+
+    // Records a node's value, which never changes once proven. Two threads
+    // setting flags of the same node at once may lose one of the updates,
+    // which the search simply works out again.
+    public void setProven(int node, int value)
+    {
+        flags[node] = (byte) ((flags[node] & ~PROVEN)
+                | (value << PROVEN_SHIFT));
+    }
+
+    public int getVisits(int node)
+    {
+        return visits[node];
+    }
+
+    public int getWins(int node)
+    {
+        return wins[node];
+    }
+
+    public void addVisits(int node, int delta)
+    {
+        INTS.getAndAdd(visits, node, delta);
+    }
+
+    public void addWins(int node, int delta)
+    {
+        INTS.getAndAdd(wins, node, delta);
+    }
+}
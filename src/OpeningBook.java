@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that gives the moves to play in the opening, read from a book file
+ * built by OpeningBookBuilder and memory-mapped. The book holds one move for
+ * every position it covers (SWAP included, for North's first move), found
+ * by a far longer search than the bot can afford during a game.
+ *
+ * Positions are identified by their Zobrist key (see Zobrist), with no extra
+ * turn flag, so the book doesn't depend on how a position was reached. The
+ * entries are sorted by key, so a lookup is a binary search.
+ *
+ * File layout: the int MAGIC and the int number of entries, then the entries
+ * of ENTRY_BYTES each: the long key, the byte move (1-7, or 0 for SWAP), an
+ * unused byte and the short value of the move (the win rate the search
+ * found, in hundredths of a percent).
+ */
+public class OpeningBook
+{
+    // First four bytes of a book file ("KOB1").
+    public static final int MAGIC = 0x4B4F4231;
+
+    // Bytes before the first entry.
+    public static final int HEADER_BYTES = 8;
+
+    // Bytes per entry.
+    public static final int ENTRY_BYTES = 12;
+
+    // Value of a win rate of 100%.
+    public static final int MAX_VALUE = 10000;
+
+    // Returned by getMove() for a position not in the book.
+    public static final int NO_MOVE = -1;
+
+    // The entries, after the header.
+    private final MappedByteBuffer entries;
+
+    private final int size;
+
+    private OpeningBook(MappedByteBuffer entries, int size)
+    {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Method that maps a book file into memory.
+     *
+     * @param file
+     *            The path of the file.
+     *
+     * @return book The book.
+     *
+     * @throws IOException
+     *             If the file can't be read or is not a valid book.
+     */
+    public static OpeningBook open(String file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.READ))
+        {
+            MappedByteBuffer entries = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (channel.size() < HEADER_BYTES || entries.getInt(0) != MAGIC)
+                throw new IOException(file + " is not an opening book");
+
+            int size = entries.getInt(4);
+            if (size < 0 || channel.size() != HEADER_BYTES + (long) size
+                    * ENTRY_BYTES)
+                throw new IOException(file + " is truncated or corrupt");
+
+            return new OpeningBook(entries, size);
+        }
+    }
+
+    // The key positions are stored under.
+    public static long key(Board board, int toMove)
+    {
+        return Zobrist.hash(board, toMove, false);
+    }
+
+    // Number of positions in the book.
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Method that looks up the book move for a position.
+     *
+     * @param board
+     *            The position.
+     * @param toMove
+     *            The player to move.
+     *
+     * @return move The move (1-7, or 0 for SWAP), or NO_MOVE if the position
+     *         is not in the book.
+     */
+    public int getMove(Board board, int toMove)
+    {
+        int entry = find(key(board, toMove));
+        return entry < 0 ? NO_MOVE : entries.get(offset(entry) + 8);
+    }
+
+    /**
+     * Method that looks up the value of the book move for a position.
+     *
+     * @param board
+     *            The position.
+     * @param toMove
+     *            The player to move.
+     *
+     * @return value The win rate of the move, in hundredths of a percent,
+     *         or -1 if the position is not in the book.
+     */
+    public int getValue(Board board, int toMove)
+    {
+        int entry = find(key(board, toMove));
+        return entry < 0 ? -1 : entries.getShort(offset(entry) + 10);
+    }
+
+    // Binary search for the entry of a key; -1 if it is not in the book.
+    private int find(long key)
+    {
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            long midKey = entries.getLong(offset(mid));
+
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+
+        return -1;
+    }
+
+    private static int offset(int entry)
+    {
+        return HEADER_BYTES + entry * ENTRY_BYTES;
+    }
+}
@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tool that builds the opening book read by OpeningBook, giving a move for
+ * every position reachable in the first few moves of a game, whoever plays
+ * them.
+ *
+ * The positions are found by playing every legal move (SWAP included) from
+ * the start of the game up to the given number of moves, a position reached
+ * by different orders of moves being kept once. Each position then gets a
+ * search with a far larger budget than a game allows; the positions are
+ * shared out between the threads, each searching its own tree. The search
+ * of a position is seeded with its number, so the same arguments build the
+ * same book whatever the number of threads.
+ *
+ * Usage: java OpeningBookBuilder file [plies] [simulations] [threads]
+ */
+public class OpeningBookBuilder
+{
+    // Default number of moves covered by the book.
+    public static final int DEFAULT_PLIES = 2;
+
+    // Default number of simulations per position.
+    public static final long DEFAULT_SIMULATIONS = 1000000;
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: java OpeningBookBuilder file "
+                    + "[plies] [simulations] [threads]");
+            System.exit(1);
+        }
+
+        int plies = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_PLIES;
+        long simulations = args.length > 2 ? Long.parseLong(args[2])
+                : DEFAULT_SIMULATIONS;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime
+                .getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        int size = build(args[0], plies, simulations, threads);
+
+        System.out.printf("%d positions in %.1f s%n", size,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Method that builds a book file.
+     *
+     * @param file
+     *            The path of the file to write.
+     * @param plies
+     *            The number of moves from the start of the game covered.
+     * @param simulations
+     *            The number of simulations to search each position with.
+     * @param threads
+     *            The number of threads to search with.
+     *
+     * @return size The number of positions in the book.
+     *
+     * @throws IOException
+     *             If the file can't be written.
+     */
+    public static int build(String file, int plies, long simulations,
+            int threads) throws IOException
+    {
+        final List<Board> boards = new ArrayList<Board>();
+        final List<Integer> players = new ArrayList<Integer>();
+        positions(plies, boards, players);
+
+        final int size = boards.size();
+        final long[] keys = new long[size];
+        final byte[] moves = new byte[size];
+        final short[] values = new short[size];
+
+        final SearchBudget budget = SearchBudget.ofSimulations(simulations);
+        final int poolNodes = NodePool.defaultCapacity() / threads;
+        final AtomicInteger next = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++)
+        {
+            workers[t] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    NodePool pool = new NodePool(poolNodes);
+                    MonteCarloTreeSearch search = new MonteCarloTreeSearch();
+
+                    int i;
+                    while ((i = next.getAndIncrement()) < size)
+                    {
+                        Board board = boards.get(i);
+                        int toMove = players.get(i);
+
+                        pool.reset();
+                        int root = pool.addRoot(board, toMove);
+                        search.setSeed(i);
+                        int move = search.search(pool, root, budget);
+
+                        keys[i] = OpeningBook.key(board, toMove);
+                        moves[i] = (byte) move;
+                        values[i] = (short) value(pool, root, move);
+
+                        System.out.printf("%d/%d: move %d, %.1f%%%n", i + 1,
+                                size, move, values[i] * 100.0
+                                        / OpeningBook.MAX_VALUE);
+                    }
+                }
+            }, "book-" + t);
+            workers[t].start();
+        }
+
+        for (int t = 0; t < threads; t++)
+            Utilities.join(workers[t]);
+
+        write(file, keys, moves, values);
+        return size;
+    }
+
+    /**
+     * Method that lists the positions reachable from the start of the game
+     * in a number of moves, each once, leaving out finished games.
+     *
+     * @param plies
+     *            The number of moves.
+     * @param boards
+     *            The list to add the positions to.
+     * @param players
+     *            The list to add the player to move in each position to.
+     */
+    private static void positions(int plies, List<Board> boards,
+            List<Integer> players)
+    {
+        Set<Long> seen = new HashSet<Long>();
+        boards.add(Board.INITIAL);
+        players.add(0);
+        seen.add(OpeningBook.key(Board.INITIAL, 0));
+
+        int first = 0;
+        for (int ply = 0; ply < plies; ply++)
+        {
+            int last = boards.size();
+            for (int i = first; i < last; i++)
+            {
+                Board board = boards.get(i);
+                int player = players.get(i);
+
+                int moves = board.legalMoves(player);
+                if (board.canSwap(player))
+                    moves |= 1;
+
+                for (int pit = 0; pit <= Board.PITS; pit++)
+                {
+                    if ((moves & (1 << pit)) == 0)
+                        continue;
+
+                    Board child = board.move(player, pit);
+                    int toMove = board.nextPlayer(player, pit);
+                    if (!child.isGameOver()
+                            && seen.add(OpeningBook.key(child, toMove)))
+                    {
+                        boards.add(child);
+                        players.add(toMove);
+                    }
+                }
+            }
+
+            first = last;
+        }
+    }
+
+    // The win rate of a move in a searched tree, out of MAX_VALUE.
+    private static int value(NodePool pool, int root, int move)
+    {
+        int child = pool.findChild(root, move);
+        if (child == NodePool.NONE || pool.getVisits(child) == 0)
+            return OpeningBook.MAX_VALUE / 2;
+
+        return (int) ((long) pool.getWins(child) * OpeningBook.MAX_VALUE
+                / pool.getVisits(child));
+    }
+
+    /**
+     * Method that writes the entries of a book, sorted by key, to a file.
+     *
+     * @param file
+     *            The path of the file.
+     * @param keys
+     *            The keys of the positions.
+     * @param moves
+     *            The book move of each position.
+     * @param values
+     *            The value of each book move.
+     *
+     * @throws IOException
+     *             If the file can't be written.
+     */
+    private static void write(String file, final long[] keys, byte[] moves,
+            short[] values) throws IOException
+    {
+        int size = keys.length;
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                return Long.compare(keys[a], keys[b]);
+            }
+        });
+
+        // Same byte order as the MappedByteBuffer that reads it.
+        ByteBuffer book = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + size
+                * OpeningBook.ENTRY_BYTES).order(ByteOrder.BIG_ENDIAN);
+        book.putInt(OpeningBook.MAGIC);
+        book.putInt(size);
+
+        for (int i : order)
+        {
+            book.putLong(keys[i]);
+            book.put(moves[i]);
+            book.put((byte) 0);
+            book.putShort(values[i]);
+        }
+
+        book.flip();
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (book.hasRemaining())
+                channel.write(book);
+        }
+    }
+}
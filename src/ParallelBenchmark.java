@@ -0,0 +1,105 @@
+/**
+ * Benchmark for RootParallelSearch. For every thread count from 1 to N it
+ * measures the simulations per second of a fixed-time search from the
+ * opening, and the win rate of the N-thread search against a single thread
+ * given the same time per move (the two bots swap sides every game).
+ *
+ * Usage: java ParallelBenchmark [maxThreads] [moveMillis] [games]
+ */
+public class ParallelBenchmark
+{
+    public static void main(String[] args)
+    {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime
+                .getRuntime().availableProcessors();
+        long moveMillis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        SearchBudget budget = SearchBudget.ofTime(moveMillis);
+        RootParallelSearch single = new RootParallelSearch(1, 1);
+
+        // The tree of the first thread; every search starts it afresh.
+        NodePool pool = new NodePool(NodePool.defaultCapacity() / 2);
+
+        // Let the JIT compile the search before anything is measured.
+        for (int i = 0; i < 20; i++)
+            single.search(pool, newTree(pool), budget);
+
+        System.out.println("threads  sims/s      speedup  win rate vs 1");
+
+        double baseRate = 0;
+        for (int threads = 1; threads <= maxThreads; threads++)
+        {
+            RootParallelSearch search = new RootParallelSearch(threads,
+                    pool.getCapacity() / threads);
+
+            long sims = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++)
+            {
+                search.search(pool, newTree(pool), budget);
+                sims += search.getNumSimulations();
+            }
+            double rate = sims / ((System.nanoTime() - start) / 1e9);
+            if (threads == 1)
+                baseRate = rate;
+
+            double score = 0;
+            for (int game = 0; game < games; game++)
+            {
+                // Alternate who moves first.
+                int result = (game % 2 == 0) ? playGame(search, single,
+                        pool, budget) : -playGame(single, search, pool,
+                        budget);
+                score += (result > 0) ? 1 : (result == 0) ? 0.5 : 0;
+            }
+
+            System.out.printf("%7d  %10.0f  %6.2fx  %5.1f%%%n", threads, rate,
+                    rate / baseRate, 100 * score / games);
+        }
+    }
+
+    /**
+     * Method that plays one game between two searches.
+     *
+     * @param south
+     *            The search that moves first.
+     * @param north
+     *            The search that moves second.
+     * @param pool
+     *            The pool for the tree of the search to move.
+     * @param budget
+     *            The budget for every move.
+     *
+     * @return difference South's final score minus North's.
+     */
+    static int playGame(RootParallelSearch south, RootParallelSearch north,
+            NodePool pool, SearchBudget budget)
+    {
+        Board board = Board.INITIAL;
+        int player = 0;
+
+        while (!board.isGameOver())
+        {
+            // Every search starts from a fresh tree.
+            pool.reset();
+            int root = pool.addRoot(board, player);
+
+            RootParallelSearch toMove = (player == 0) ? south : north;
+            int move = toMove.search(pool, root, budget);
+
+            int next = board.nextPlayer(player, move);
+            board = board.move(player, move);
+            player = next;
+        }
+
+        return board.finalScore(0) - board.finalScore(1);
+    }
+
+    // Clears the pool and adds the opening position as the root.
+    private static int newTree(NodePool pool)
+    {
+        pool.reset();
+        return pool.addRoot(Board.INITIAL, 0);
+    }
+}
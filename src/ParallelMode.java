@@ -0,0 +1,15 @@
+/**
+ * The ways a search can use several threads (see BotConfig).
+ */
+public enum ParallelMode
+{
+    // One tree shared by all the threads (SharedTreeSearch).
+    TREE,
+
+    // A tree per thread, merged at the root (RootParallelSearch).
+    ROOT,
+
+    // One tree, with a batch of playouts per leaf spread over the threads
+    // (LeafParallelSearch).
+    LEAF
+}
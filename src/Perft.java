@@ -0,0 +1,189 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tool that counts the positions reached by every sequence of a given number
+ * of moves from a position (like perft in chess), using the move generator
+ * of Board: sowing past the opponent's store, captures, extra turns and the
+ * SWAP all change the counts, so any new move generator has to give the same
+ * numbers. It also reports the positions counted per second, a measure of the
+ * speed of the move generator with no search around it.
+ *
+ * An extra turn and a SWAP each count as a move, and a game that ends before
+ * the last move adds nothing to the count. From the start of the game the
+ * counts are:
+ *
+ * depth 1: 7, 2: 56, 3: 364, 4: 2388, 5: 15653, 6: 101884, 7: 664602, 8:
+ * 4287250, 9: 27648341.
+ *
+ * The count for each first move is printed too, so a difference can be
+ * tracked down move by move. The first moves can be shared out between
+ * threads.
+ *
+ * Usage: java Perft depth [threads] [state player], where state is the board
+ * in the format of the engine's CHANGE message (North's pits and store, then
+ * South's) and player is S or N, the player to move.
+ */
+public class Perft
+{
+    public static void main(String[] args)
+    {
+        if (args.length < 1 || args.length == 3)
+        {
+            System.err.println("Usage: java Perft depth [threads] "
+                    + "[state player]");
+            System.exit(1);
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        Board board = Board.INITIAL;
+        int player = 0;
+        if (args.length > 3)
+        {
+            board = parseState(args[2]);
+            player = args[3].equalsIgnoreCase("N") ? 1 : 0;
+        }
+
+        long start = System.nanoTime();
+        long[] counts = divide(board, player, depth, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = 0;
+        for (int pit = 0; pit <= Board.PITS; pit++)
+        {
+            if (counts[pit] >= 0)
+            {
+                System.out.println((pit == 0 ? "SWAP" : String.valueOf(pit))
+                        + ": " + counts[pit]);
+                total += counts[pit];
+            }
+        }
+
+        System.out.printf("Positions: %d%nTime: %.3f s%nPositions/s: %.0f%n",
+                total, seconds, total / seconds);
+    }
+
+    /**
+     * Method that counts the positions at a depth below each first move,
+     * sharing the first moves out between threads.
+     *
+     * @param board
+     *            The position.
+     * @param player
+     *            The player to move.
+     * @param depth
+     *            The number of moves, at least one.
+     * @param threads
+     *            The number of threads.
+     *
+     * @return counts The count for each first move (index 0 being SWAP), or
+     *         -1 for the moves that are not legal.
+     */
+    public static long[] divide(final Board board, final int player,
+            final int depth, int threads)
+    {
+        final long[] counts = new long[Board.PITS + 1];
+        final int moves = moves(board, player);
+        final AtomicInteger next = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++)
+        {
+            workers[t] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    int pit;
+                    while ((pit = next.getAndIncrement()) <= Board.PITS)
+                    {
+                        if ((moves & (1 << pit)) == 0)
+                        {
+                            counts[pit] = -1;
+                            continue;
+                        }
+
+                        Board child = board.move(player, pit);
+                        counts[pit] = perft(child, board.nextPlayer(player,
+                                pit), depth - 1);
+                    }
+                }
+            }, "perft-" + t);
+            workers[t].start();
+        }
+
+        for (int t = 0; t < threads; t++)
+            Utilities.join(workers[t]);
+
+        return counts;
+    }
+
+    /**
+     * Method that counts the positions reached by every sequence of a number
+     * of moves from a position.
+     *
+     * @param board
+     *            The position.
+     * @param player
+     *            The player to move.
+     * @param depth
+     *            The number of moves.
+     *
+     * @return count The number of positions.
+     */
+    public static long perft(Board board, int player, int depth)
+    {
+        if (depth == 0)
+            return 1;
+
+        if (board.isGameOver())
+            return 0;
+
+        int moves = moves(board, player);
+
+        // Every move leads to a position at the last depth, so there is no
+        // need to make them.
+        if (depth == 1)
+            return Integer.bitCount(moves);
+
+        long count = 0;
+        for (int pit = 0; pit <= Board.PITS; pit++)
+        {
+            if ((moves & (1 << pit)) != 0)
+                count += perft(board.move(player, pit), board.nextPlayer(
+                        player, pit), depth - 1);
+        }
+
+        return count;
+    }
+
+    // The legal moves of a player as a bit mask, bit 0 being SWAP.
+    private static int moves(Board board, int player)
+    {
+        int moves = board.legalMoves(player);
+        if (board.canSwap(player))
+            moves |= 1;
+
+        return moves;
+    }
+
+    // Reads a board written as in the engine's CHANGE message.
+    private static Board parseState(String state)
+    {
+        String[] counts = state.split(",");
+        if (counts.length != 2 * (Board.PITS + 1))
+            throw new IllegalArgumentException("Expected "
+                    + 2 * (Board.PITS + 1) + " numbers: " + state);
+
+        int[][] array = new int[2][Board.PITS + 1];
+        for (int i = 0; i < Board.PITS; i++)
+        {
+            array[1][i + 1] = Integer.parseInt(counts[i]);
+            array[0][i + 1] = Integer.parseInt(counts[Board.PITS + 1 + i]);
+        }
+        array[1][0] = Integer.parseInt(counts[Board.PITS]);
+        array[0][0] = Integer.parseInt(counts[2 * Board.PITS + 1]);
+
+        return Board.fromArray(array);
+    }
+}
@@ -0,0 +1,324 @@
+/**
+ * Class that plays random games of Kalah to the end for the simulation step
+ * of the Monte Carlo Tree Search. The game is played on a scratch board held
+ * in two packed longs (see Board), so a playout creates no nodes, lists or
+ * arrays no matter how many moves it takes. The moves are uniformly random
+ * unless a PlayoutPolicy favouring extra turns, captures and rescues is set.
+ *
+ * A playout stops as soon as either store holds a majority of the stones,
+ * as the winner can't change after that, or after the policy's most moves.
+ * A Playout is not thread safe; each searching thread needs its own.
+ */
+public class Playout
+{
+    // Mask of the pit lanes (everything but the store) of a packed side.
+    private static final long PIT_LANES = ~0xFFL;
+
+    // The scratch board the game is played on.
+    private long south;
+    private long north;
+
+    // Source of the random moves.
+    private final RandomSource random;
+
+    // How the moves are chosen.
+    private PlayoutPolicy policy = PlayoutPolicy.RANDOM;
+
+    // Scores and weights of the legal moves for the softmax policy, indexed
+    // by pit.
+    private final int[] scores = new int[Board.PITS + 1];
+    private final double[] weights = new double[Board.PITS + 1];
+
+    public Playout()
+    {
+        this(new Xoroshiro128());
+    }
+
+    public Playout(RandomSource random)
+    {
+        this.random = random;
+    }
+
+    public void setPolicy(PlayoutPolicy policy)
+    {
+        this.policy = policy;
+    }
+
+    // Restarts the random moves from a seed, so that the same playouts can
+    // be played again.
+    public void setSeed(long seed)
+    {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Method that plays random moves from a position until the game ends or
+     * is decided.
+     *
+     * @param start
+     *            The position to play from.
+     * @param player
+     *            The player to move in that position.
+     *
+     * @return difference South's final score minus North's final score, or
+     *         South's store minus North's if the playout stopped early.
+     */
+    public int run(Board start, int player)
+    {
+        return run(start.getSouth(), start.getNorth(), player);
+    }
+
+    /**
+     * Method that plays random moves from a packed position until the game
+     * ends or is decided.
+     *
+     * @param startSouth
+     *            South's packed side of the position to play from.
+     * @param startNorth
+     *            North's packed side of the position to play from.
+     * @param player
+     *            The player to move in that position.
+     *
+     * @return difference South's final score minus North's final score, or
+     *         South's store minus North's if the playout stopped early.
+     */
+    public int run(long startSouth, long startNorth, int player)
+    {
+        south = startSouth;
+        north = startNorth;
+
+        // The first move of the game never earns an extra turn.
+        boolean firstMove = south == Board.INITIAL.getSouth()
+                && north == Board.INITIAL.getNorth();
+
+        int maxMoves = policy.getMaxMoves();
+        for (int moves = 0; moves < maxMoves; moves++)
+        {
+            if ((south & PIT_LANES) == 0 || (north & PIT_LANES) == 0)
+                return finalScore(south) - finalScore(north);
+
+            // A majority in a store has the same sign as the final result.
+            if (Board.isDecided(south, north))
+                break;
+
+            long own = (player == 0) ? south : north;
+            long opp = (player == 0) ? north : south;
+
+            int pit = (policy.getKind() == PlayoutPolicy.Kind.RANDOM)
+                    ? randomPit(own) : policyPit(own, opp, firstMove);
+            int stones = Board.lane(own, pit);
+
+            // Sow the stones.
+            long newOwn = Board.sowOwn(own, pit, stones);
+            long newOpp = Board.sowOpp(opp, pit, stones);
+            int last = Board.landing(pit, stones);
+
+            // Special case 'stealing opponents stones'.
+            if (Board.isCapture(newOwn, newOpp, last))
+            {
+                newOwn = Board.capture(newOwn, last,
+                        Board.capturedStones(newOpp, last));
+                newOpp = Board.clearLane(newOpp, Board.PITS + 1 - last);
+            }
+
+            if (player == 0)
+            {
+                south = newOwn;
+                north = newOpp;
+            }
+            else
+            {
+                north = newOwn;
+                south = newOpp;
+            }
+
+            // Special case 'player moves again'.
+            if (last != 0 || firstMove)
+                player ^= 1;
+
+            firstMove = false;
+        }
+
+        return Board.lane(south, 0) - Board.lane(north, 0);
+    }
+
+    /**
+     * Method that picks one of the non-empty pits of a side uniformly at
+     * random, straight from the packed counts.
+     *
+     * @param side
+     *            The packed side of the player to move (must have stones).
+     *
+     * @return pit The pit chosen (1-7).
+     */
+    private int randomPit(long side)
+    {
+        int mask = Board.nonEmptyPits(side);
+        int k = random.nextInt(Integer.bitCount(mask));
+
+        // Drop the k lowest legal pits.
+        for (; k > 0; k--)
+            mask &= mask - 1;
+
+        return Integer.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Method that picks a pit with the epsilon-greedy or the softmax policy,
+     * scoring the legal moves as described in PlayoutPolicy.
+     *
+     * @param own
+     *            The packed side of the player to move (must have stones).
+     * @param opp
+     *            The packed side of the opponent.
+     * @param firstMove
+     *            Whether this is the first move of the game, which never
+     *            earns an extra turn.
+     *
+     * @return pit The pit chosen (1-7).
+     */
+    private int policyPit(long own, long opp, boolean firstMove)
+    {
+        boolean greedy = policy.getKind() == PlayoutPolicy.Kind.GREEDY;
+        if (greedy && random.nextDouble() < policy.getEpsilon())
+            return randomPit(own);
+
+        int mask = Board.nonEmptyPits(own);
+        int threatened = threatenedPits(own, opp);
+
+        int bestPit = 0;
+        int bestScore = -1;
+        int ties = 0;
+
+        for (int legal = mask; legal != 0; legal &= legal - 1)
+        {
+            int pit = Integer.numberOfTrailingZeros(legal);
+            int score = score(own, opp, pit, threatened, firstMove);
+
+            if (!greedy)
+            {
+                scores[pit] = score;
+                bestScore = Math.max(bestScore, score);
+            }
+            else if (score > bestScore)
+            {
+                bestPit = pit;
+                bestScore = score;
+                ties = 1;
+            }
+            else if (score == bestScore && random.nextInt(++ties) == 0)
+            {
+                // Each of the best pits is kept with equal probability.
+                bestPit = pit;
+            }
+        }
+
+        if (greedy)
+            return bestPit;
+
+        // Weigh the moves against the best one, which keeps the weights at
+        // most 1 and their total finite.
+        double total = 0;
+        for (int legal = mask; legal != 0; legal &= legal - 1)
+        {
+            int pit = Integer.numberOfTrailingZeros(legal);
+            weights[pit] = policy.weight(bestScore - scores[pit]);
+            total += weights[pit];
+        }
+
+        // Walk the weights until the drawn share of their total is used up.
+        double share = random.nextDouble() * total;
+        int pit = 0;
+        for (int legal = mask; legal != 0; legal &= legal - 1)
+        {
+            pit = Integer.numberOfTrailingZeros(legal);
+            share -= weights[pit];
+            if (share < 0)
+                break;
+        }
+
+        return pit;
+    }
+
+    /**
+     * Method that scores a move by the stones it obviously gains: an extra
+     * turn, the stones it captures and the stones it moves out of danger.
+     *
+     * @param own
+     *            The packed side of the player to move.
+     * @param opp
+     *            The packed side of the opponent.
+     * @param pit
+     *            The pit to sow (not empty).
+     * @param threatened
+     *            The mask of the player's pits the opponent can capture.
+     * @param firstMove
+     *            Whether this is the first move of the game.
+     *
+     * @return score The score, at least 0.
+     */
+    private static int score(long own, long opp, int pit, int threatened,
+            boolean firstMove)
+    {
+        int stones = Board.lane(own, pit);
+        int last = Board.landing(pit, stones);
+        int score = 0;
+
+        if (last == 0)
+        {
+            if (!firstMove)
+                score += PlayoutPolicy.EXTRA_TURN_SCORE;
+        }
+        else if (last > 0)
+        {
+            long newOwn = Board.sowOwn(own, pit, stones);
+            long newOpp = Board.sowOpp(opp, pit, stones);
+            if (Board.isCapture(newOwn, newOpp, last))
+                score += (int) Board.capturedStones(newOpp, last) + 1;
+        }
+
+        if ((threatened & (1 << pit)) != 0)
+            score += stones;
+
+        return score;
+    }
+
+    /**
+     * Method that finds the player's non-empty pits the opponent could
+     * capture on its next move, if it were the opponent's turn: those
+     * opposite an empty pit of the opponent where one of its sowings ends.
+     *
+     * @param own
+     *            The packed side of the player.
+     * @param opp
+     *            The packed side of the opponent.
+     *
+     * @return mask The pits under threat as a bit mask (bits 1-7).
+     */
+    private static int threatenedPits(long own, long opp)
+    {
+        int threatened = 0;
+        for (int legal = Board.nonEmptyPits(opp); legal != 0; legal &= legal
+                - 1)
+        {
+            int pit = Integer.numberOfTrailingZeros(legal);
+            int stones = Board.lane(opp, pit);
+            int last = Board.landing(pit, stones);
+
+            // The last pit must be empty before the last stone, which
+            // happens when it is passed once (or is the pit emptied, after a
+            // full lap).
+            boolean empty = (last == pit) ? stones == Board.CYCLE : last > 0
+                    && stones < Board.CYCLE && Board.lane(opp, last) == 0;
+            if (empty)
+                threatened |= 1 << (Board.PITS + 1 - last);
+        }
+
+        return threatened & Board.nonEmptyPits(own);
+    }
+
+    private static int finalScore(long side)
+    {
+        return Board.lane(side, 0) + Board.sumPits(side);
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Class that represents how a Playout chooses its moves. The random policy
+ * picks any legal move with equal probability. The other two score every
+ * legal move by what it obviously gains, in stones:
+ *
+ * - a move ending in the player's own store earns an extra turn, worth
+ * EXTRA_TURN_SCORE;
+ * - a capture wins the captured stones and the capturing stone;
+ * - a move out of a pit the opponent can capture from next turn saves the
+ * stones in it.
+ *
+ * The epsilon-greedy policy plays a best scoring move, or a random one with
+ * probability epsilon. The softmax policy picks a move with probability
+ * proportional to exp(score / temperature), so the lower the temperature, the
+ * more it favours the best moves. The weights are taken relative to the best
+ * legal move, as exp((score - best score) / temperature), so they never
+ * overflow however low the temperature. Scores are whole numbers, so the
+ * weights are looked up in a table worked out once for the policy.
+ *
+ * A policy can also cut playouts off after a number of moves, scoring them by
+ * the difference of the stores: less accurate, but quicker when the games
+ * are long.
+ *
+ * Policies are immutable, so one instance can be shared between playouts.
+ */
+public class PlayoutPolicy
+{
+    // Score of a move that earns an extra turn.
+    public static final int EXTRA_TURN_SCORE = 2;
+
+    // Default probability of a random move of the epsilon-greedy policy.
+    public static final double DEFAULT_EPSILON = 0.1;
+
+    // Value of the most moves of a playout that are not limited.
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    // Default temperature of the softmax policy.
+    public static final double DEFAULT_TEMPERATURE = 2.0;
+
+    // The policy of uniformly random moves.
+    public static final PlayoutPolicy RANDOM = new PlayoutPolicy(Kind.RANDOM,
+            1.0, 0, null, UNLIMITED);
+
+    // Highest score a move can have: no move can gain more than all the
+    // stones in the game.
+    private static final int MAX_SCORE = Board.TOTAL_STONES
+            + EXTRA_TURN_SCORE;
+
+    enum Kind
+    {
+        RANDOM, GREEDY, SOFTMAX
+    }
+
+    private final Kind kind;
+
+    // Probability of a random move (epsilon-greedy).
+    private final double epsilon;
+
+    // Temperature (softmax).
+    private final double temperature;
+
+    // Weight of a move for each number of points it scores below the best
+    // move (softmax), or null.
+    private final double[] weights;
+
+    // Most moves a playout plays before it is scored.
+    private final int maxMoves;
+
+    private PlayoutPolicy(Kind kind, double epsilon, double temperature,
+            double[] weights, int maxMoves)
+    {
+        this.kind = kind;
+        this.epsilon = epsilon;
+        this.temperature = temperature;
+        this.weights = weights;
+        this.maxMoves = maxMoves;
+    }
+
+    public static PlayoutPolicy epsilonGreedy(double epsilon)
+    {
+        if (epsilon < 0 || epsilon > 1)
+            throw new IllegalArgumentException(
+                    "epsilon must be between 0 and 1");
+
+        return new PlayoutPolicy(Kind.GREEDY, epsilon, 0, null, UNLIMITED);
+    }
+
+    public static PlayoutPolicy softmax(double temperature)
+    {
+        // A temperature so low that 1 / temperature overflows would make
+        // every weight but the best move's not a number.
+        if (!(temperature > 0) || Double.isInfinite(temperature)
+                || Double.isInfinite(1 / temperature))
+            throw new IllegalArgumentException(
+                    "temperature must be positive and finite, and not so "
+                            + "small that 1 / temperature overflows");
+
+        double[] weights = new double[MAX_SCORE + 1];
+        for (int below = 0; below <= MAX_SCORE; below++)
+            weights[below] = Math.exp(-below / temperature);
+
+        return new PlayoutPolicy(Kind.SOFTMAX, 0, temperature, weights,
+                UNLIMITED);
+    }
+
+    // Returns a copy of this policy that stops playouts after the given
+    // number of moves (or UNLIMITED).
+    public PlayoutPolicy withMaxMoves(int maxMoves)
+    {
+        if (maxMoves < 1)
+            throw new IllegalArgumentException(
+                    "a playout needs at least one move");
+
+        return new PlayoutPolicy(kind, epsilon, temperature, weights,
+                maxMoves);
+    }
+
+    /**
+     * Method that reads a policy written as random, greedy or softmax,
+     * optionally followed by a colon and its epsilon or temperature (for
+     * example greedy:0.05).
+     *
+     * @param policy
+     *            The policy as text.
+     *
+     * @return policy The policy.
+     *
+     * @throws IllegalArgumentException
+     *             If the text is not a valid policy.
+     */
+    public static PlayoutPolicy parse(String policy)
+    {
+        int colon = policy.indexOf(':');
+        String name = (colon < 0) ? policy : policy.substring(0, colon);
+        String parameter = (colon < 0) ? null : policy.substring(colon + 1);
+
+        switch (name.trim().toLowerCase())
+        {
+            case "random":
+                return RANDOM;
+
+            case "greedy":
+                return epsilonGreedy(parameter == null ? DEFAULT_EPSILON
+                        : Double.parseDouble(parameter));
+
+            case "softmax":
+                return softmax(parameter == null ? DEFAULT_TEMPERATURE
+                        : Double.parseDouble(parameter));
+
+            default:
+                throw new IllegalArgumentException("Unknown playout policy: "
+                        + policy);
+        }
+    }
+
+    Kind getKind()
+    {
+        return kind;
+    }
+
+    public int getMaxMoves()
+    {
+        return maxMoves;
+    }
+
+    double getEpsilon()
+    {
+        return epsilon;
+    }
+
+    // Weight of a move scoring a number of points below the best legal move
+    // (softmax): 1 for the best move, and never more.
+    double weight(int below)
+    {
+        return weights[Math.min(below, MAX_SCORE)];
+    }
+
+    public String toString()
+    {
+        switch (kind)
+        {
+            case GREEDY:
+                return "greedy:" + epsilon;
+
+            case SOFTMAX:
+                return "softmax:" + temperature;
+
+            default:
+                return "random";
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * Interface for the random number generators the playouts draw their moves
+ * from. Each searching thread has a generator of its own, so implementations
+ * need not be thread safe, and a generator given the same seed must give the
+ * same numbers, so that a search can be repeated exactly.
+ */
+public interface RandomSource
+{
+    /**
+     * Method that draws a whole number uniformly at random.
+     *
+     * @param bound
+     *            The number of values to draw from (positive).
+     *
+     * @return value A value from 0 to bound - 1.
+     */
+    int nextInt(int bound);
+
+    // Draws a number uniformly at random from [0, 1).
+    double nextDouble();
+
+    /**
+     * Method that restarts the generator from a seed.
+     *
+     * @param seed
+     *            The seed.
+     */
+    void setSeed(long seed);
+}
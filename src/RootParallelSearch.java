@@ -0,0 +1,263 @@
+
+/**
+ * Class that runs Monte Carlo Tree Search with root parallelism: every thread
+ * searches its own tree from the same root position with its own random
+ * number generator, and when the budget runs out the visit and win counts of
+ * the root's children are summed over all the trees before the best move is
+ * picked. The trees share nothing while searching, so no locking is needed.
+ *
+ * The first thread searches the root node it is given (so whatever tree is
+ * already below it is kept and grown); the others start every search from a
+ * fresh copy of the root's position in a pool of their own.
+ */
+public class RootParallelSearch implements MonteCarloEngine
+{
+    // One search (with its own playout engine) per thread.
+    private final MonteCarloTreeSearch[] searches;
+
+    // The trees of the threads after the first, which searches the caller's.
+    private final NodePool[] pools;
+
+    // Simulations done by all the threads in the last search.
+    private long numSimulations;
+
+    // Selections made by all the threads in the last search, their total
+    // depth and the deepest of them.
+    private long numSelections;
+    private long totalDepth;
+    private int maxDepth;
+
+    public RootParallelSearch(int threads)
+    {
+        this(threads, NodePool.defaultCapacity() / Math.max(1, threads));
+    }
+
+    /**
+     * Constructor for a root parallel search.
+     *
+     * @param threads
+     *            The number of threads.
+     * @param poolNodes
+     *            The size of the pool of each thread after the first.
+     */
+    public RootParallelSearch(int threads, int poolNodes)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+
+        searches = new MonteCarloTreeSearch[threads];
+        pools = new NodePool[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            searches[i] = new MonteCarloTreeSearch(new Playout());
+            if (i > 0)
+                pools[i] = new NodePool(poolNodes);
+        }
+    }
+
+    public int getThreads()
+    {
+        return searches.length;
+    }
+
+    // Gives every thread's search the exact values of an endgame table.
+    public void setEndgameTable(EndgameTable endgameTable)
+    {
+        for (int i = 0; i < searches.length; i++)
+            searches[i].setEndgameTable(endgameTable);
+    }
+
+    // Sets the weight of the exploration term of every thread's search.
+    public void setExploration(double exploration)
+    {
+        for (int i = 0; i < searches.length; i++)
+            searches[i].setExploration(exploration);
+    }
+
+    // Sets how every thread's playouts choose their moves.
+    public void setPlayoutPolicy(PlayoutPolicy policy)
+    {
+        for (int i = 0; i < searches.length; i++)
+            searches[i].setPlayoutPolicy(policy);
+    }
+
+    // Restarts the playouts of every thread from a seed, each thread's
+    // derived from it.
+    public void setSeed(long seed)
+    {
+        for (int i = 0; i < searches.length; i++)
+            searches[i].setSeed(seed + i);
+    }
+
+    // Number of simulations done by all the threads in the last search.
+    public long getNumSimulations()
+    {
+        return numSimulations;
+    }
+
+    // Depth below the root of the deepest selection of the last search.
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    // Average depth below the root of the selections of the last search.
+    public double getMeanDepth()
+    {
+        return numSelections == 0 ? 0 : (double) totalDepth / numSelections;
+    }
+
+    /**
+     * Method that searches a position on all the threads and returns the move
+     * with the most visits over all the trees.
+     *
+     * @param pool
+     *            The pool holding the first thread's tree.
+     * @param root
+     *            The current state.
+     * @param budget
+     *            The budget for the whole search. Time limits apply to every
+     *            thread; simulation and node limits are shared out between
+     *            the threads.
+     *
+     * @return theBestMove The next action to take (1-7, or 0 for SWAP).
+     */
+    public int search(NodePool pool, int root, SearchBudget budget)
+    {
+        int threads = searches.length;
+
+        if (threads == 1)
+        {
+            int best = searches[0].search(pool, root, budget);
+            numSimulations = searches[0].getNumSimulations();
+            sumDepths();
+            return best;
+        }
+
+        final SearchBudget threadBudget = budget.shareOut(threads);
+
+        final int[] roots = new int[threads];
+        final NodePool[] trees = pools.clone();
+        Thread[] workers = new Thread[threads];
+
+        trees[0] = pool;
+        roots[0] = root;
+        for (int i = 1; i < threads; i++)
+        {
+            trees[i].reset();
+            roots[i] = trees[i].addRoot(pool.getBoard(root),
+                    pool.getPlayerToMove(root));
+        }
+
+        for (int i = 0; i < threads; i++)
+        {
+            final MonteCarloTreeSearch search = searches[i];
+            final NodePool tree = trees[i];
+            final int treeRoot = roots[i];
+
+            workers[i] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    search.search(tree, treeRoot, threadBudget);
+                }
+            }, "mcts-" + i);
+            workers[i].start();
+        }
+
+        numSimulations = 0;
+        for (int i = 0; i < threads; i++)
+        {
+            Utilities.join(workers[i]);
+            numSimulations += searches[i].getNumSimulations();
+        }
+        sumDepths();
+
+        return mergedBestMove(trees, roots);
+    }
+
+    // Adds up the selection depths of the threads' last searches.
+    private void sumDepths()
+    {
+        numSelections = 0;
+        totalDepth = 0;
+        maxDepth = 0;
+        for (int i = 0; i < searches.length; i++)
+        {
+            numSelections += searches[i].getNumSelections();
+            totalDepth += searches[i].getTotalDepth();
+            maxDepth = Math.max(maxDepth, searches[i].getMaxDepth());
+        }
+    }
+
+    /**
+     * Method that sums the statistics of the root's children over all the
+     * trees and returns the move with the most visits in total, or a move
+     * proven to win in any tree. Moves proven to lose are only returned if
+     * every move is.
+     *
+     * @param trees
+     *            The pools holding the trees.
+     * @param roots
+     *            The roots of the trees, all for the same position.
+     *
+     * @return move The best move (1-7, or 0 for SWAP).
+     */
+    static int mergedBestMove(NodePool[] trees, int[] roots)
+    {
+        // Indexed by move, 0 being SWAP.
+        long[] visits = new long[Board.PITS + 1];
+        long[] wins = new long[Board.PITS + 1];
+        boolean[] seen = new boolean[Board.PITS + 1];
+        boolean[] lost = new boolean[Board.PITS + 1];
+
+        for (int i = 0; i < trees.length; i++)
+        {
+            NodePool tree = trees[i];
+            int first = tree.getFirstChild(roots[i]);
+            if (first == NodePool.NONE)
+                continue;
+
+            int end = first + tree.getNumChildren(roots[i]);
+            for (int slot = first; slot < end; slot++)
+            {
+                int move = tree.getMove(slot);
+                int child = tree.getChild(slot);
+                if (child == NodePool.NONE)
+                    continue;
+
+                // A move any tree has proven to win is played straight away.
+                if (tree.getProven(child) == NodePool.WIN)
+                    return move;
+
+                visits[move] += tree.getVisits(child);
+                wins[move] += tree.getWins(child);
+                lost[move] |= tree.getProven(child) == NodePool.LOSS;
+                seen[move] = true;
+            }
+        }
+
+        // Moves not proven to lose come first, then most visits wins; ties
+        // go to the better win rate.
+        int bestMove = -1;
+        for (int move = 0; move <= Board.PITS; move++)
+        {
+            if (!seen[move])
+                continue;
+
+            if (bestMove == -1
+                    || (lost[bestMove] && !lost[move])
+                    || (lost[bestMove] == lost[move]
+                    && (visits[move] > visits[bestMove]
+                    || (visits[move] == visits[bestMove]
+                    && wins[move] > wins[bestMove]))))
+                bestMove = move;
+        }
+
+        // No tree has any children (the pools were full).
+        if (bestMove == -1)
+            return MonteCarloTreeSearch.bestMove(trees[0], roots[0]);
+
+        return bestMove;
+    }
+}
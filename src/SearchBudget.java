@@ -0,0 +1,177 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class that represents how much work a single search is allowed to do. A
+ * budget can limit the wall-clock time, the number of simulations and the
+ * number of nodes added to the tree, and can be tied to a stop signal that
+ * another thread sets; the search stops as soon as any of the limits set is
+ * reached. Budgets are immutable, so one instance can be shared between
+ * searches.
+ */
+public class SearchBudget
+{
+    // Value of a limit that has not been set.
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    // The clock is only read once every this many simulations (must be a power
+    // of two), so checking the budget stays a couple of compares.
+    private static final int TIME_CHECK_INTERVAL = 16;
+
+    // Wall-clock limit in nanoseconds.
+    private final long timeNanos;
+
+    // Limit on the number of simulations.
+    private final long maxSimulations;
+
+    // Limit on the number of nodes added to the tree.
+    private final long maxNodes;
+
+    // Set by another thread to stop the search, or null if there is none.
+    private final AtomicBoolean stop;
+
+    private SearchBudget(long timeNanos, long maxSimulations, long maxNodes,
+            AtomicBoolean stop)
+    {
+        this.timeNanos = timeNanos;
+        this.maxSimulations = maxSimulations;
+        this.maxNodes = maxNodes;
+        this.stop = stop;
+    }
+
+    public static SearchBudget ofTime(long millis)
+    {
+        return new SearchBudget(toNanos(millis), UNLIMITED, UNLIMITED, null);
+    }
+
+    public static SearchBudget ofSimulations(long simulations)
+    {
+        return new SearchBudget(UNLIMITED, simulations, UNLIMITED, null);
+    }
+
+    public static SearchBudget ofNodes(long nodes)
+    {
+        return new SearchBudget(UNLIMITED, UNLIMITED, nodes, null);
+    }
+
+    // A budget with no limits, that runs until the stop signal is set.
+    public static SearchBudget untilStopped(AtomicBoolean stop)
+    {
+        return new SearchBudget(UNLIMITED, UNLIMITED, UNLIMITED, stop);
+    }
+
+    // Returns a copy of this budget that also stops after the given time.
+    public SearchBudget withTime(long millis)
+    {
+        return new SearchBudget(toNanos(millis), maxSimulations, maxNodes,
+                stop);
+    }
+
+    // Returns a copy of this budget that also stops after the given number of
+    // simulations.
+    public SearchBudget withSimulations(long simulations)
+    {
+        return new SearchBudget(timeNanos, simulations, maxNodes, stop);
+    }
+
+    // Returns a copy of this budget that also stops after the given number of
+    // nodes have been added.
+    public SearchBudget withNodes(long nodes)
+    {
+        return new SearchBudget(timeNanos, maxSimulations, nodes, stop);
+    }
+
+    /**
+     * Method that works out the budget of each of several threads searching
+     * together: they all get the whole time limit, and the simulation and
+     * node limits are divided between them.
+     *
+     * @param threads
+     *            The number of threads.
+     *
+     * @return budget The budget for one of the threads.
+     */
+    public SearchBudget shareOut(int threads)
+    {
+        return new SearchBudget(timeNanos, share(maxSimulations, threads),
+                share(maxNodes, threads), stop);
+    }
+
+    private static long share(long limit, int threads)
+    {
+        return limit == UNLIMITED ? UNLIMITED : Math.max(1, limit / threads);
+    }
+
+    /**
+     * Method that works out the System.nanoTime() value at which a search
+     * started now has to stop.
+     *
+     * @param startNanos
+     *            System.nanoTime() at the start of the search.
+     *
+     * @return deadline The deadline, or UNLIMITED if there is no time limit.
+     */
+    public long deadline(long startNanos)
+    {
+        if (timeNanos == UNLIMITED)
+            return UNLIMITED;
+
+        return startNanos + timeNanos;
+    }
+
+    /**
+     * Method that checks whether a search has used up this budget. Meant to be
+     * called once per simulation.
+     *
+     * @param deadline
+     *            The deadline returned by deadline().
+     * @param simulations
+     *            Simulations done so far by the search.
+     * @param nodes
+     *            Nodes added to the tree so far by the search.
+     *
+     * @return exhausted Whether the search should stop.
+     */
+    public boolean isExhausted(long deadline, long simulations, long nodes)
+    {
+        if (simulations >= maxSimulations || nodes >= maxNodes)
+            return true;
+
+        if (stop != null && stop.get())
+            return true;
+
+        return deadline != UNLIMITED
+                && (simulations & (TIME_CHECK_INTERVAL - 1)) == 0
+                && System.nanoTime() - deadline >= 0;
+    }
+
+    public long getTimeMillis()
+    {
+        return timeNanos == UNLIMITED ? UNLIMITED : timeNanos / 1000000L;
+    }
+
+    public long getMaxSimulations()
+    {
+        return maxSimulations;
+    }
+
+    public long getMaxNodes()
+    {
+        return maxNodes;
+    }
+
+    private static long toNanos(long millis)
+    {
+        return millis == UNLIMITED ? UNLIMITED : millis * 1000000L;
+    }
+
+    public String toString()
+    {
+        return "time=" + limit(getTimeMillis()) + " sims="
+                + limit(maxSimulations) + " nodes=" + limit(maxNodes);
+    }
+
+    private static String limit(long value)
+    {
+        return value == UNLIMITED ? "-" : String.valueOf(value);
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Interface for the searches the bot can choose its moves with: Monte Carlo
+ * Tree Search on one of the ways of using several threads (SharedTreeSearch,
+ * RootParallelSearch and LeafParallelSearch), or AlphaBetaSearch. KalahBot
+ * creates the one its configuration asks for and uses it through this
+ * interface only.
+ *
+ * The position to search is a node of the bot's game tree. The Monte Carlo
+ * searches grow the tree below it, which the bot keeps from move to move;
+ * an engine keeping no tree only reads the node's position.
+ */
+public interface SearchEngine
+{
+    /**
+     * Method that searches a position until the budget is used up, and
+     * returns the best move found.
+     *
+     * @param pool
+     *            The pool holding the game tree.
+     * @param root
+     *            The node of the position to search.
+     * @param budget
+     *            The budget. An engine that plays no simulations counts the
+     *            positions it searches against the simulation limit.
+     *
+     * @return move The move to make (1-7, or 0 for SWAP).
+     */
+    int search(NodePool pool, int root, SearchBudget budget);
+
+    // Uses the exact values of an endgame table for the positions it covers.
+    void setEndgameTable(EndgameTable endgameTable);
+
+    // Restarts any random choices of the search from a seed.
+    void setSeed(long seed);
+
+    // Simulations (or positions) searched by the last search.
+    long getNumSimulations();
+
+    // Depth below the root of the deepest line of the last search.
+    int getMaxDepth();
+
+    // Average depth below the root of the lines of the last search.
+    double getMeanDepth();
+}
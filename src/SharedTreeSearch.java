@@ -0,0 +1,162 @@
+
+/**
+ * Class that runs Monte Carlo Tree Search with tree parallelism: all the
+ * threads search one shared tree from the same root. Node statistics are
+ * updated atomically and children are added without locking (see NodePool),
+ * so no locks are held while searching. Each thread charges a virtual loss
+ * to the nodes of the simulation it is running, so the other threads spread
+ * out over different branches instead of all following the same best path.
+ */
+public class SharedTreeSearch implements MonteCarloEngine
+{
+    // Default number of virtual losses charged per running simulation.
+    public static final int DEFAULT_VIRTUAL_LOSS = 3;
+
+    // One search (with its own playout engine) per thread.
+    private final MonteCarloTreeSearch[] searches;
+
+    // Simulations done by all the threads in the last search.
+    private long numSimulations;
+
+    // Selections made by all the threads in the last search, their total
+    // depth and the deepest of them.
+    private long numSelections;
+    private long totalDepth;
+    private int maxDepth;
+
+    public SharedTreeSearch(int threads)
+    {
+        this(threads, DEFAULT_VIRTUAL_LOSS);
+    }
+
+    public SharedTreeSearch(int threads, int virtualLoss)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+
+        // A single thread has nobody to steer away.
+        if (threads == 1)
+            virtualLoss = 0;
+
+        searches = new MonteCarloTreeSearch[threads];
+        for (int i = 0; i < threads; i++)
+            searches[i] = new MonteCarloTreeSearch(new Playout(),
+                    virtualLoss);
+    }
+
+    public int getThreads()
+    {
+        return searches.length;
+    }
+
+    // Gives every thread's search the exact values of an endgame table.
+    public void setEndgameTable(EndgameTable endgameTable)
+    {
+        for (int i = 0; i < searches.length; i++)
+            searches[i].setEndgameTable(endgameTable);
+    }
+
+    // Sets the weight of the exploration term of every thread's search.
+    public void setExploration(double exploration)
+    {
+        for (int i = 0; i < searches.length; i++)
+            searches[i].setExploration(exploration);
+    }
+
+    // Sets how every thread's playouts choose their moves.
+    public void setPlayoutPolicy(PlayoutPolicy policy)
+    {
+        for (int i = 0; i < searches.length; i++)
+            searches[i].setPlayoutPolicy(policy);
+    }
+
+    // Restarts the playouts of every thread from a seed, each thread's
+    // derived from it.
+    public void setSeed(long seed)
+    {
+        for (int i = 0; i < searches.length; i++)
+            searches[i].setSeed(seed + i);
+    }
+
+    // Number of simulations done by all the threads in the last search.
+    public long getNumSimulations()
+    {
+        return numSimulations;
+    }
+
+    // Depth below the root of the deepest selection of the last search.
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    // Average depth below the root of the selections of the last search.
+    public double getMeanDepth()
+    {
+        return numSelections == 0 ? 0 : (double) totalDepth / numSelections;
+    }
+
+    /**
+     * Method that searches a position with all the threads on one tree and
+     * returns the move with the most visits.
+     *
+     * @param pool
+     *            The pool holding the tree.
+     * @param root
+     *            The current state.
+     * @param budget
+     *            The budget for the whole search. Time limits apply to every
+     *            thread; simulation and node limits are shared out between
+     *            the threads.
+     *
+     * @return theBestMove The next action to take (1-7, or 0 for SWAP).
+     */
+    public int search(final NodePool pool, final int root,
+            SearchBudget budget)
+    {
+        int threads = searches.length;
+        final SearchBudget threadBudget = budget.shareOut(threads);
+        Thread[] workers = new Thread[threads - 1];
+
+        // The calling thread does its share of the work too.
+        for (int i = 1; i < threads; i++)
+        {
+            final MonteCarloTreeSearch search = searches[i];
+
+            workers[i - 1] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    search.search(pool, root, threadBudget);
+                }
+            }, "mcts-" + i);
+            workers[i - 1].start();
+        }
+
+        searches[0].search(pool, root, threadBudget);
+
+        numSimulations = searches[0].getNumSimulations();
+        for (int i = 1; i < threads; i++)
+        {
+            Utilities.join(workers[i - 1]);
+            numSimulations += searches[i].getNumSimulations();
+        }
+        sumDepths();
+
+        return MonteCarloTreeSearch.bestMove(pool, root);
+    }
+
+    // Adds up the selection depths of the threads' last searches.
+    private void sumDepths()
+    {
+        numSelections = 0;
+        totalDepth = 0;
+        maxDepth = 0;
+        for (int i = 0; i < searches.length; i++)
+        {
+            numSelections += searches[i].getNumSelections();
+            totalDepth += searches[i].getTotalDepth();
+            maxDepth = Math.max(maxDepth, searches[i].getMaxDepth());
+        }
+    }
+}
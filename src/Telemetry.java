@@ -0,0 +1,180 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Class that writes a line of JSON for every move the bot makes, describing
+ * the search behind it: the simulations done, the time taken and the rate,
+ * the size of the tree, how deep the selections went, the visits and wins of
+ * each move at the root, the heap in use and the garbage collections during
+ * the search. For example (on one line):
+ *
+ * {"move":12,"chosen":3,"book":false,"simulations":41000,"millis":250,
+ * "simsPerSec":164000,"treeNodes":180422,"poolNodes":4793490,"maxDepth":14,
+ * "meanDepth":6.21,"root":[{"move":1,"visits":2012,"wins":870},...],
+ * "heapUsed":301989888,"heapMax":1073741824,"gcCount":1,"gcMillis":3}
+ *
+ * With root parallelism, the tree and the root's moves are those of the
+ * first thread's tree, which is the one kept from move to move. With the
+ * alpha-beta engine, the simulations are the positions searched, both depths
+ * are that of the last complete iteration, and the tree holds only the
+ * states of the game.
+ *
+ * The bot only has a Telemetry when it is turned on (kalah.telemetry), so
+ * it costs nothing otherwise.
+ */
+public class Telemetry
+{
+    // Where the lines go.
+    private final OutputStream out;
+
+    // The collectors, for the number and time of collections.
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory
+            .getGarbageCollectorMXBeans();
+
+    // State when the current search started.
+    private long startNanos;
+    private long startCollections;
+    private long startCollectionMillis;
+
+    private Telemetry(OutputStream out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * Method that starts writing telemetry.
+     *
+     * @param target
+     *            "stderr", or the path of a file to append the lines to.
+     *
+     * @return telemetry The telemetry.
+     *
+     * @throws IOException
+     *             If the file can't be opened.
+     */
+    public static Telemetry open(String target) throws IOException
+    {
+        if (target.equals("stderr"))
+            return new Telemetry(System.err);
+
+        return new Telemetry(new FileOutputStream(target, true));
+    }
+
+    // Notes the time and the collections so far, before a search.
+    public void searchStarted()
+    {
+        startNanos = System.nanoTime();
+        startCollections = collections();
+        startCollectionMillis = collectionMillis();
+    }
+
+    /**
+     * Method that writes the line for a move, after searchStarted() was
+     * called before its search.
+     *
+     * @param moveNumber
+     *            The number of the bot's move in the game, from 1.
+     * @param chosen
+     *            The move made (1-7, or 0 for SWAP).
+     * @param book
+     *            Whether the move came from the opening book (with no
+     *            search).
+     * @param simulations
+     *            The simulations done.
+     * @param pool
+     *            The pool holding the tree.
+     * @param root
+     *            The node the move was made from.
+     * @param maxDepth
+     *            The depth of the deepest selection.
+     * @param meanDepth
+     *            The average depth of the selections.
+     */
+    public void searchFinished(int moveNumber, int chosen, boolean book,
+            long simulations, NodePool pool, int root, int maxDepth,
+            double meanDepth)
+    {
+        long millis = (System.nanoTime() - startNanos) / 1000000L;
+        Runtime runtime = Runtime.getRuntime();
+
+        StringBuilder line = new StringBuilder(512);
+        line.append("{\"move\":").append(moveNumber);
+        line.append(",\"chosen\":").append(chosen);
+        line.append(",\"book\":").append(book);
+        line.append(",\"simulations\":").append(simulations);
+        line.append(",\"millis\":").append(millis);
+        line.append(",\"simsPerSec\":").append(millis == 0 ? 0 : simulations
+                * 1000 / millis);
+        line.append(",\"treeNodes\":").append(pool.size());
+        line.append(",\"poolNodes\":").append(pool.getCapacity());
+        line.append(",\"maxDepth\":").append(maxDepth);
+        line.append(",\"meanDepth\":").append(String.format(Locale.ROOT,
+                "%.2f", meanDepth));
+
+        line.append(",\"root\":[");
+        int first = pool.getFirstChild(root);
+        int end = (first == NodePool.NONE) ? first : first
+                + pool.getNumChildren(root);
+        for (int slot = first; slot < end; slot++)
+        {
+            int child = pool.getChild(slot);
+            if (child == NodePool.NONE)
+                continue;
+
+            if (line.charAt(line.length() - 1) == '}')
+                line.append(',');
+            line.append("{\"move\":").append(pool.getMove(slot));
+            line.append(",\"visits\":").append(pool.getVisits(child));
+            line.append(",\"wins\":").append(pool.getWins(child)).append('}');
+        }
+        line.append(']');
+
+        line.append(",\"heapUsed\":").append(runtime.totalMemory()
+                - runtime.freeMemory());
+        line.append(",\"heapMax\":").append(runtime.maxMemory());
+        line.append(",\"gcCount\":").append(collections() - startCollections);
+        line.append(",\"gcMillis\":").append(collectionMillis()
+                - startCollectionMillis);
+        line.append("}\n");
+
+        write(line.toString());
+    }
+
+    // Writes a line in one go, so lines from several bots don't mix.
+    private void write(String line)
+    {
+        try
+        {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Can't write telemetry: " + e.getMessage());
+        }
+    }
+
+    private long collections()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors)
+            count += Math.max(0, collector.getCollectionCount());
+
+        return count;
+    }
+
+    private long collectionMillis()
+    {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : collectors)
+            millis += Math.max(0, collector.getCollectionTime());
+
+        return millis;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Class that spreads the bot's total match clock over the moves it still
+ * expects to make. Before each move it hands out a time budget for the
+ * search, and after each move it is told how long the move really took, so
+ * overruns (protocol, JVM pauses, a loaded host) come out of later moves
+ * instead of running the clock out.
+ */
+public class TimeManager
+{
+    // Time kept back for the moves after the estimate, and for the time
+    // spent outside the search.
+    private static final double RESERVE = 0.1;
+
+    // Never plan for fewer moves than this, so one move can't eat the clock.
+    private static final int MIN_MOVES_LEFT = 4;
+
+    // Each move gets at least this long, even when the clock is nearly gone.
+    private static final long MIN_MOVE_MILLIS = 5;
+
+    // Time taken by a move outside the search (reading the engine's message,
+    // sending ours), deducted from every budget handed out.
+    private static final long MOVE_OVERHEAD_MILLIS = 10;
+
+    // Total time the bot has for the whole match.
+    private final long totalMillis;
+
+    // Time used so far.
+    private long usedMillis;
+
+    public TimeManager(long totalMillis)
+    {
+        this.totalMillis = totalMillis;
+        this.usedMillis = 0;
+    }
+
+    /**
+     * Method that works out the search budget for the next move.
+     *
+     * @param board
+     *            The position to move in.
+     *
+     * @return budget The budget for this move's search.
+     */
+    public SearchBudget budgetForMove(Board board)
+    {
+        long remaining = (long) ((totalMillis - usedMillis) * (1 - RESERVE));
+        long perMove = remaining / expectedMovesLeft(board)
+                - MOVE_OVERHEAD_MILLIS;
+
+        return SearchBudget.ofTime(Math.max(MIN_MOVE_MILLIS, perMove));
+    }
+
+    // Records the wall-clock time the last move took, from receiving the
+    // engine's message to sending the reply.
+    public void moveFinished(long elapsedMillis)
+    {
+        usedMillis += elapsedMillis;
+    }
+
+    public long getRemainingMillis()
+    {
+        return totalMillis - usedMillis;
+    }
+
+    /**
+     * Method that estimates how many more moves the player will have to make.
+     * A typical move clears about three stones off the board, and roughly half
+     * the moves left are ours.
+     *
+     * @param board
+     *            The current position.
+     *
+     * @return moves The estimated number of moves left for the player.
+     */
+    static int expectedMovesLeft(Board board)
+    {
+        int onBoard = board.seedsInPits(0) + board.seedsInPits(1);
+        return Math.max(MIN_MOVES_LEFT, onBoard / 6 + 2);
+    }
+}
@@ -0,0 +1,132 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Class that maps the Zobrist keys of positions to the nodes of a NodePool
+ * holding them, so a position reached by a different order of moves is
+ * linked to the node already in the tree instead of getting a duplicate.
+ *
+ * The table has a fixed number of entries in buckets of four. A key can go
+ * anywhere in its bucket; when the bucket is full the entry for the node with
+ * the fewest visits is replaced, as that node has the least search invested
+ * in it. Entries are only hints: a thread may see a key with another key's
+ * node while the entry is being replaced, so NodePool checks the position of
+ * every node it gets back.
+ */
+public class TranspositionTable
+{
+    // Entries per bucket (a power of two).
+    private static final int BUCKET = 4;
+
+    // Heap used per entry.
+    public static final int BYTES_PER_ENTRY = 12;
+
+    // Ordered access to the node ids, so a node is filled in before another
+    // thread can find it.
+    private static final VarHandle INTS = MethodHandles
+            .arrayElementVarHandle(int[].class);
+
+    private final long[] keys;
+    private final int[] nodes;
+
+    // Mask selecting the first entry of a key's bucket.
+    private final int mask;
+
+    /**
+     * Constructor for a transposition table.
+     *
+     * @param entries
+     *            The most entries the table may have; rounded down to a
+     *            power of two, and at least one bucket.
+     */
+    public TranspositionTable(int entries)
+    {
+        int size = Integer.highestOneBit(Math.max(BUCKET, entries));
+
+        keys = new long[size];
+        nodes = new int[size];
+        mask = (size - 1) & ~(BUCKET - 1);
+        clear();
+    }
+
+    public int getEntries()
+    {
+        return nodes.length;
+    }
+
+    // Empties the table.
+    public void clear()
+    {
+        Arrays.fill(nodes, NodePool.NONE);
+    }
+
+    /**
+     * Method that looks up the node stored for a key.
+     *
+     * @param key
+     *            The key of the position.
+     *
+     * @return node The node, or NONE if there is none.
+     */
+    public int get(long key)
+    {
+        int first = bucket(key);
+        for (int i = first; i < first + BUCKET; i++)
+        {
+            if (keys[i] == key)
+            {
+                int node = (int) INTS.getAcquire(nodes, i);
+                if (node != NodePool.NONE)
+                    return node;
+            }
+        }
+
+        return NodePool.NONE;
+    }
+
+    /**
+     * Method that stores the node for a key, replacing the key's old entry if
+     * it has one, else an empty entry, else the entry of the bucket whose
+     * node has the fewest visits.
+     *
+     * @param key
+     *            The key of the position.
+     * @param node
+     *            The node holding the position.
+     * @param pool
+     *            The pool holding the nodes.
+     */
+    public void put(long key, int node, NodePool pool)
+    {
+        int first = bucket(key);
+        int victim = first;
+        int fewest = Integer.MAX_VALUE;
+
+        for (int i = first; i < first + BUCKET; i++)
+        {
+            int old = (int) INTS.getAcquire(nodes, i);
+            if (old == NodePool.NONE || keys[i] == key)
+            {
+                victim = i;
+                break;
+            }
+
+            int visits = pool.getVisits(old);
+            if (visits < fewest)
+            {
+                fewest = visits;
+                victim = i;
+            }
+        }
+
+        keys[victim] = key;
+        INTS.setRelease(nodes, victim, node);
+    }
+
+    private int bucket(long key)
+    {
+        // Every bit of a Zobrist key is random, so any of them will do.
+        return (int) (key >>> 32) & mask;
+    }
+}
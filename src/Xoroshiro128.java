@@ -0,0 +1,100 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that generates random numbers with xoroshiro128++, a generator with
+ * 128 bits of state that takes a handful of shifts, rotations and additions
+ * per number and passes the usual statistical tests. Unlike Math.random() it
+ * shares nothing between threads, so each thread should have its own.
+ *
+ * A seed is spread over the two words of state with SplitMix64, so seeds
+ * that differ by one give unrelated sequences.
+ */
+public class Xoroshiro128 implements RandomSource
+{
+    // Makes the seeds of generators created in the same nanosecond differ.
+    private static final AtomicLong seedUniquifier = new AtomicLong(
+            0x2545F4914F6CDD1DL);
+
+    // Increment of SplitMix64 (the golden ratio).
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long s0;
+    private long s1;
+
+    // A generator with a seed that is different every time.
+    public Xoroshiro128()
+    {
+        this(seedUniquifier.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime());
+    }
+
+    public Xoroshiro128(long seed)
+    {
+        setSeed(seed);
+    }
+
+    public void setSeed(long seed)
+    {
+        s0 = mix(seed += GOLDEN_GAMMA);
+        s1 = mix(seed + GOLDEN_GAMMA);
+
+        // The state must not be all zeros.
+        if ((s0 | s1) == 0)
+            s1 = GOLDEN_GAMMA;
+    }
+
+    // The next 64 random bits.
+    public long nextLong()
+    {
+        long a = s0;
+        long b = s1;
+        long result = Long.rotateLeft(a + b, 17) + a;
+
+        b ^= a;
+        s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+        s1 = Long.rotateLeft(b, 28);
+
+        return result;
+    }
+
+    /**
+     * Method that draws a whole number uniformly at random, by multiplying
+     * 32 random bits by the bound and keeping the top half, drawing again in
+     * the rare case that would favour some values (Lemire's method).
+     *
+     * @param bound
+     *            The number of values to draw from (positive).
+     *
+     * @return value A value from 0 to bound - 1.
+     */
+    public int nextInt(int bound)
+    {
+        long product = (nextLong() >>> 32) * bound;
+        int low = (int) product;
+
+        if (Integer.compareUnsigned(low, bound) < 0)
+        {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+            while (Integer.compareUnsigned(low, threshold) < 0)
+            {
+                product = (nextLong() >>> 32) * bound;
+                low = (int) product;
+            }
+        }
+
+        return (int) (product >>> 32);
+    }
+
+    // The top 53 bits of the next number, as a fraction.
+    public double nextDouble()
+    {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    // The output function of SplitMix64.
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
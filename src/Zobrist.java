@@ -0,0 +1,119 @@
+import java.util.SplittableRandom;
+
+/**
+ * Class that computes Zobrist hash keys of positions: a random 64 bit key for
+ * every count a pit or store of either player can hold, XORed together for
+ * all sixteen counts of the board, plus a key for the player to move and one
+ * for a player moving again. A move only touches some of the counts, so the
+ * key after a move is worked out from the key before it by swapping the keys
+ * of just the counts that changed.
+ *
+ * The keys come from a fixed seed, so a position has the same key on every
+ * run.
+ */
+public final class Zobrist
+{
+    // Seed of the keys.
+    private static final long SEED = 0x4B616C6168L;
+
+    // Keys indexed by [player][pit][count], pit 0 being the store.
+    private static final long[][][] COUNTS = new long[2][Board.PITS + 1][];
+
+    // Key of North to move, and of the player moving again after an extra
+    // turn.
+    private static final long NORTH_TO_MOVE;
+    private static final long MOVE_AGAIN;
+
+    static
+    {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int player = 0; player < 2; player++)
+        {
+            for (int pit = 0; pit <= Board.PITS; pit++)
+            {
+                COUNTS[player][pit] = new long[Board.TOTAL_STONES + 1];
+                for (int count = 0; count <= Board.TOTAL_STONES; count++)
+                    COUNTS[player][pit][count] = random.nextLong();
+            }
+        }
+
+        NORTH_TO_MOVE = random.nextLong();
+        MOVE_AGAIN = random.nextLong();
+    }
+
+    private Zobrist()
+    {
+    }
+
+    /**
+     * Method that computes the key of a position from scratch.
+     *
+     * @param board
+     *            The position.
+     * @param toMove
+     *            The player to move.
+     * @param moveAgain
+     *            Whether that player is moving again after an extra turn.
+     *
+     * @return key The key.
+     */
+    public static long hash(Board board, int toMove, boolean moveAgain)
+    {
+        long key = turn(toMove, moveAgain);
+        for (int pit = 0; pit <= Board.PITS; pit++)
+        {
+            key ^= COUNTS[0][pit][board.get(0, pit)];
+            key ^= COUNTS[1][pit][board.get(1, pit)];
+        }
+
+        return key;
+    }
+
+    /**
+     * Method that works out the key of a position from the key of an earlier
+     * position, by swapping the keys of the counts and of the turn that
+     * differ between the two.
+     *
+     * @param key
+     *            The key of the earlier position.
+     * @param from
+     *            The earlier position.
+     * @param fromTurn
+     *            turn() of the earlier position.
+     * @param to
+     *            The new position.
+     * @param toTurn
+     *            turn() of the new position.
+     *
+     * @return key The key of the new position.
+     */
+    public static long update(long key, Board from, long fromTurn, Board to,
+            long toTurn)
+    {
+        key ^= fromTurn ^ toTurn;
+        key = updateSide(key, COUNTS[0], from.getSouth(), to.getSouth());
+        return updateSide(key, COUNTS[1], from.getNorth(), to.getNorth());
+    }
+
+    // The part of a key that depends on whose turn it is.
+    public static long turn(int toMove, boolean moveAgain)
+    {
+        return (toMove == 1 ? NORTH_TO_MOVE : 0) ^ (moveAgain ? MOVE_AGAIN : 0);
+    }
+
+    private static long updateSide(long key, long[][] counts, long from,
+            long to)
+    {
+        // Only visit the lanes that changed.
+        long changed = from ^ to;
+        while (changed != 0)
+        {
+            int pit = Long.numberOfTrailingZeros(changed) >>> 3;
+            key ^= counts[pit][Board.lane(from, pit)]
+                    ^ counts[pit][Board.lane(to, pit)];
+            changed &= ~(0xFFL << (pit << 3));
+        }
+
+        return key;
+    }
+}
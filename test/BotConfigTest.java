@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that settings out of range keep their defaults instead of stopping
+ * the bot.
+ */
+public class BotConfigTest
+{
+    private static final BotConfig DEFAULTS = new BotConfig();
+
+    // Reads a configuration from a single setting.
+    private static BotConfig read(String name, String value)
+    {
+        Properties properties = new Properties();
+        properties.setProperty("kalah." + name, value);
+        return BotConfig.fromProperties(properties, "kalah.");
+    }
+
+    @Test
+    public void noThreadsKeepsTheDefault()
+    {
+        BotConfig config = read("threads", "0");
+        assertEquals(DEFAULTS.getThreads(), config.getThreads());
+
+        // Every parallel mode can then be started.
+        for (ParallelMode mode : ParallelMode.values())
+        {
+            Properties properties = new Properties();
+            properties.setProperty("kalah.threads", "0");
+            properties.setProperty("kalah.parallel", mode.name());
+            properties.setProperty("kalah.poolnodes", "1000");
+            new KalahBot(0, BotConfig.fromProperties(properties, "kalah."));
+        }
+    }
+
+    @Test
+    public void negativeThreadsKeepTheDefault()
+    {
+        assertEquals(DEFAULTS.getThreads(), read("threads", "-4")
+                .getThreads());
+    }
+
+    @Test
+    public void emptyPoolKeepsTheDefault()
+    {
+        BotConfig config = read("poolnodes", "0");
+        assertEquals(DEFAULTS.getPoolNodes(), config.getPoolNodes());
+        assertTrue(config.getPoolNodes() >= 1);
+    }
+
+    @Test
+    public void poolTooBigForAnIntKeepsTheDefault()
+    {
+        long tooBig = Integer.MAX_VALUE + 1L;
+        assertEquals(DEFAULTS.getPoolNodes(), read("poolnodes",
+                String.valueOf(tooBig)).getPoolNodes());
+    }
+
+    @Test
+    public void emptyLeafBatchKeepsTheDefault()
+    {
+        Properties properties = new Properties();
+        properties.setProperty("kalah.leafbatch", "0");
+        properties.setProperty("kalah.parallel", "leaf");
+        properties.setProperty("kalah.poolnodes", "1000");
+        BotConfig config = BotConfig.fromProperties(properties, "kalah.");
+
+        assertEquals(DEFAULTS.getLeafBatch(), config.getLeafBatch());
+        new KalahBot(0, config);
+    }
+
+    @Test
+    public void virtualLossOutOfRangeKeepsTheDefault()
+    {
+        assertEquals(DEFAULTS.getVirtualLoss(), read("virtualloss", "-1")
+                .getVirtualLoss());
+    }
+
+    @Test
+    public void ponderOnlyTakesTrueOrFalse()
+    {
+        assertEquals(DEFAULTS.isPondering(), read("ponder", "yes")
+                .isPondering());
+        assertEquals(false, read("ponder", "FALSE").isPondering());
+    }
+}
@@ -0,0 +1,34 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of how a leaf parallel search stops when its thread is interrupted.
+ */
+public class LeafParallelSearchTest
+{
+    @Test
+    public void interruptedBatchIsNotBackedUp()
+    {
+        NodePool pool = new NodePool(1000);
+        int root = pool.addRoot(Board.INITIAL, 0);
+        LeafParallelSearch search = new LeafParallelSearch(2, 4);
+
+        try
+        {
+            // The first batch that waits for its playouts is cut short.
+            Thread.currentThread().interrupt();
+            search.search(pool, root, SearchBudget.ofSimulations(10000));
+            assertTrue(Thread.interrupted());
+        }
+        finally
+        {
+            Thread.interrupted();
+            search.shutdown();
+        }
+
+        assertTrue(search.getNumSimulations() < 10000);
+        assertEquals(search.getNumSimulations(), pool.getVisits(root));
+    }
+}
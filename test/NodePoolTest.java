@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of how a NodePool behaves once it is full.
+ */
+public class NodePoolTest
+{
+    @Test
+    public void fullPoolStopsCountingNodes()
+    {
+        NodePool pool = new NodePool(1000);
+        int root = pool.addRoot(Board.INITIAL, 0);
+
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch();
+        search.setSeed(1);
+        search.search(pool, root, SearchBudget.ofSimulations(20000));
+
+        assertEquals(pool.getCapacity(), pool.size());
+        assertEquals(NodePool.NONE, pool.addRoot(Board.INITIAL, 0));
+        assertEquals(pool.getCapacity(), pool.size());
+    }
+
+    @Test
+    public void slotsLastAsLongAsTheNodes()
+    {
+        // Expanding every node in turn, one child at a time, sets aside a
+        // slot for each move of nearly every node.
+        NodePool pool = new NodePool(1000);
+        pool.addRoot(Board.INITIAL, 0);
+
+        int size = 0;
+        while (pool.size() > size && pool.size() < pool.getCapacity())
+        {
+            size = pool.size();
+            for (int node = 0; node < size; node++)
+            {
+                boolean untried = pool.getFirstChild(node) == NodePool.NONE
+                        || pool.getUntried(node) != 0;
+                if (pool.isGameOver(node) || !untried
+                        || pool.size() == pool.getCapacity())
+                    continue;
+
+                // There is room for a node, so there must be for its slots.
+                assertNotEquals(NodePool.NONE, pool.expand(node));
+            }
+        }
+
+        assertEquals(pool.getCapacity(), pool.size());
+    }
+}